@@ -0,0 +1,667 @@
+package com.example.cs_c_matrix_calc.benchmark;
+
+import com.example.cs_c_matrix_calc.matrix.CholeskyDecomposition;
+import com.example.cs_c_matrix_calc.matrix.EigenvalueDecomposition;
+import com.example.cs_c_matrix_calc.matrix.FloatMatrix;
+import com.example.cs_c_matrix_calc.matrix.FloatQRDecomposition;
+import com.example.cs_c_matrix_calc.matrix.IncrementalInverse;
+import com.example.cs_c_matrix_calc.matrix.LUDecomposition;
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import com.example.cs_c_matrix_calc.matrix.MatrixBatch;
+import com.example.cs_c_matrix_calc.matrix.MatrixIO;
+import com.example.cs_c_matrix_calc.matrix.MultiplicationAlgorithm;
+import com.example.cs_c_matrix_calc.matrix.QRDecomposition;
+import com.example.cs_c_matrix_calc.matrix.RealMatrix;
+import com.example.cs_c_matrix_calc.matrix.SparseMatrix;
+import com.example.cs_c_matrix_calc.matrix.Strassen;
+import com.example.cs_c_matrix_calc.matrix.iterative.BiCGSTAB;
+import com.example.cs_c_matrix_calc.matrix.iterative.ConjugateGradient;
+import com.example.cs_c_matrix_calc.matrix.iterative.EigenResult;
+import com.example.cs_c_matrix_calc.matrix.iterative.GMRES;
+import com.example.cs_c_matrix_calc.matrix.iterative.ILU0Preconditioner;
+import com.example.cs_c_matrix_calc.matrix.iterative.IterativeSolver;
+import com.example.cs_c_matrix_calc.matrix.iterative.JacobiPreconditioner;
+import com.example.cs_c_matrix_calc.matrix.iterative.LanczosEigenSolver;
+import com.example.cs_c_matrix_calc.matrix.iterative.SolverResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Correctness checks for the kernels the benchmarks time, for the shapes and
+ * edge cases the timings do not reach. Run them after building the module:
+ * <p/>
+ * java -cp benchmarks/target/benchmarks.jar com.example.cs_c_matrix_calc.benchmark.AccuracyChecks
+ * <p/>
+ * Every failed check is printed and the exit status is 1.
+ */
+public class AccuracyChecks {
+
+    /**
+     * Unit roundoff of double.
+     */
+    private static final double U = Math.ulp(1.0) / 2;
+
+    private static final Random RANDOM = new Random(42);
+
+    private static int checks, failures;
+
+    public static void main(String[] args) {
+        nonFiniteProducts();
+        wideQR();
+        choleskyInverse();
+        nearlySingular();
+        sparse();
+        matrixIO();
+        batch();
+        incremental();
+        krylov();
+        eigen();
+        strassen();
+        System.out.println(checks + " checks, " + failures + " failed.");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * A zero in A times NaN or Inf in B is NaN, in the small-product path
+     * and in the packed kernel alike.
+     */
+    private static void nonFiniteProducts() {
+        int[] sizes = {3, 17, 200};
+        for (int n : sizes) {
+            Matrix A = new Matrix(n, n);
+            Matrix B = random(n, n);
+            B.set(n - 1, 0, Double.NaN);
+            B.set(0, n - 1, Double.POSITIVE_INFINITY);
+            Matrix C = A.mult(B, MultiplicationAlgorithm.CLASSICAL);
+            boolean ok = true;
+            for (int i = 0; i < n; i++) {
+                ok &= Double.isNaN(C.get(i, 0)) && Double.isNaN(C.get(i, n - 1)) && C.get(i, 1) == 0.0;
+            }
+            check(ok, "0 * NaN and 0 * Inf are NaN in a " + n + "x" + n + " product");
+
+            FloatMatrix F = FloatMatrix.narrow(B).mult(new FloatMatrix(n, n));
+            FloatMatrix G = new FloatMatrix(n, n).mult(FloatMatrix.narrow(B));
+            ok = true;
+            for (int i = 0; i < n; i++) {
+                ok &= Double.isNaN(G.get(i, 0)) && Double.isNaN(G.get(i, n - 1)) && G.get(i, 1) == 0.0;
+                ok &= Double.isNaN(F.get(n - 1, i)) && Double.isNaN(F.get(0, i)) && F.get(1, i) == 0.0;
+            }
+            check(ok, "0 * NaN and 0 * Inf are NaN in a " + n + "x" + n + " float product");
+        }
+    }
+
+    /**
+     * QR of matrices with more columns than rows, panels ending at, inside
+     * and past the last row, and reuse of the decomposition for a tall matrix.
+     */
+    private static void wideQR() {
+        int[][] shapes = {{1, 2}, {2, 70}, {5, 33}, {31, 64}, {32, 65}, {40, 97}};
+        for (int[] s : shapes) {
+            String name = "QR " + s[0] + "x" + s[1];
+            Matrix A = Matrix.random(s[0], s[1]);
+            QRDecomposition qr;
+            try {
+                qr = new QRDecomposition(A);
+            } catch (RuntimeException e) {
+                check(false, name + " factors: " + e);
+                continue;
+            }
+            check(!qr.isFullRank(), name + " is rank deficient");
+            try {
+                qr.solve(Matrix.random(s[0], 1));
+                check(false, name + " solve rejects it");
+            } catch (RuntimeException e) {
+                check("Matrix is rank deficient.".equals(e.getMessage()), name + " solve rejects it: " + e);
+            }
+
+            // Same storage, now a tall matrix: A'*(A*X - B) = 0 at the least squares solution.
+            Matrix T = Matrix.random(s[1], s[0]);
+            Matrix B = Matrix.random(s[1], 2);
+            Matrix X = qr.decompose(T).solve(B);
+            Matrix G = T.transpose().mult(T.mult(X).minus(B));
+            check(maxAbs(G) <= 1e-10 * s[1], name + " reused for " + s[1] + "x" + s[0] + ", normal equations " + maxAbs(G));
+
+            try {
+                check(!new FloatQRDecomposition(FloatMatrix.narrow(A)).isFullRank(), "Float" + name + " is rank deficient");
+            } catch (RuntimeException e) {
+                check(false, "Float" + name + " factors: " + e);
+            }
+        }
+    }
+
+    /**
+     * The inverse from the inverted factor is exactly symmetric and agrees
+     * with solving against the identity, across the panel boundaries.
+     */
+    private static void choleskyInverse() {
+        int[] sizes = {1, 2, 63, 64, 65, 150};
+        for (int n : sizes) {
+            Matrix R = random(n + 3, n);
+            Matrix A = R.transpose().mult(R);
+            CholeskyDecomposition chol = new CholeskyDecomposition(A);
+            Matrix X = chol.inverse();
+            check(maxAbs(X.minus(X.transpose())) == 0.0, "Cholesky inverse " + n + "x" + n + " is symmetric");
+            Matrix Y = chol.solve(Matrix.identity(n, n));
+            double diff = maxAbs(X.minus(Y)) / maxAbs(Y);
+            check(diff <= 1e-10, "Cholesky inverse " + n + "x" + n + " against solve, relative difference " + diff);
+        }
+    }
+
+    /**
+     * Nearly singular matrices are rejected alike whether or not they are
+     * symmetric, by solve and by inverse.
+     */
+    private static void nearlySingular() {
+        Matrix[] matrices = {
+                new Matrix(new double[][]{{1, 1}, {1, 1 + 1e-9}}),
+                new Matrix(new double[][]{{1, 1.0000001}, {1, 1 + 1e-9}})};
+        for (Matrix A : matrices) {
+            String name = "[[1, " + A.get(0, 1) + "], [1, 1 + 1e-9]]";
+            try {
+                A.inverse();
+                check(false, name + " inverse rejects it");
+            } catch (RuntimeException e) {
+                check("Matrix is singular.".equals(e.getMessage()), name + " inverse rejects it: " + e);
+            }
+            try {
+                A.solve(Matrix.identity(2, 2));
+                check(false, name + " solve rejects it");
+            } catch (RuntimeException e) {
+                check("Matrix is singular.".equals(e.getMessage()), name + " solve rejects it: " + e);
+            }
+        }
+    }
+
+    /**
+     * CSR products, sums and transposes against the same operations on the
+     * dense matrices, for shapes with empty rows and with no entries at all.
+     */
+    private static void sparse() {
+        int[][] shapes = {{1, 1, 1}, {7, 13, 5}, {60, 45, 70}, {200, 150, 120}};
+        double[] densities = {0.0, 0.05, 0.3};
+        for (double density : densities) {
+            for (int[] s : shapes) {
+                int m = s[0], k = s[1], n = s[2];
+                String name = "CSR " + m + "x" + k + " * " + k + "x" + n + ", density " + density;
+                Matrix A = sparseRandom(m, k, density), B = sparseRandom(k, n, density);
+                Matrix C = sparseRandom(m, k, density), D = random(k, n);
+                SparseMatrix a = SparseMatrix.fromDense(A), b = SparseMatrix.fromDense(B), c = SparseMatrix.fromDense(C);
+                double tolerance = 1e-14 * k;
+
+                check(maxAbs(a.toDense().minus(A)) == 0.0, name + " round-trips through CSR");
+                check(maxAbs(a.mult(D).minus(A.mult(D))) <= tolerance, name + " times dense");
+                check(maxAbs(a.mult(b).toDense().minus(A.mult(B))) <= tolerance, name + " times sparse");
+                check(maxAbs(a.plus(c).toDense().minus(A.plus(C))) == 0.0, name + " plus");
+                check(maxAbs(a.minus(c).toDense().minus(A.minus(C))) == 0.0, name + " minus");
+                check(maxAbs(a.transpose().toDense().minus(A.transpose())) == 0.0, name + " transpose");
+
+                double[] x = new double[k], y = new double[m];
+                for (int j = 0; j < k; j++) {
+                    x[j] = D.get(j, 0);
+                }
+                a.mult(x, y);
+                Matrix Y = A.mult(new Matrix(x, k, 1));
+                double diff = 0.0;
+                for (int i = 0; i < m; i++) {
+                    diff = Math.max(diff, Math.abs(y[i] - Y.get(i, 0)));
+                }
+                check(diff <= tolerance, name + " times vector, difference " + diff);
+            }
+        }
+    }
+
+    /**
+     * MatrixIO records written and read back: matrices, windows of larger
+     * arrays, and LU, QR and Cholesky factors that must solve exactly as the
+     * originals do. Several records share one stream, and corrupt records
+     * are rejected with IOException.
+     */
+    private static void matrixIO() {
+        int[] sizes = {1, 5, 40, 150};
+        for (int n : sizes) {
+            String name = "MatrixIO " + n + "x" + n;
+            try {
+                Matrix A = random(n, n);
+                Matrix big = random(n + 3, n + 5);
+                Matrix window = new Matrix(big.data(), 2 * (n + 5) + 1, n + 5, n, n + 2);
+                Matrix T = random(n + 7, n);
+                Matrix R = random(n + 2, n);
+                Matrix S = R.transpose().mult(R);
+                for (int i = 0; i < n; i++) {
+                    for (int j = 0; j < i; j++) {
+                        S.set(i, j, S.get(j, i));
+                    }
+                }
+                Matrix B = random(n, 3);
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                WritableByteChannel out = Channels.newChannel(bytes);
+                MatrixIO.write(A, out);
+                MatrixIO.write(window, out);
+                MatrixIO.write(FloatMatrix.narrow(A), out);
+                MatrixIO.write(A.lu(), out);
+                MatrixIO.write(T.qr(), out);
+                MatrixIO.write(S.cholesky(), out);
+                MatrixIO.write(A.cholesky(), out);
+
+                ReadableByteChannel in = Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray()));
+                check(maxAbs(MatrixIO.readMatrix(in).minus(A)) == 0.0, name + " matrix");
+                check(maxAbs(MatrixIO.readMatrix(in).minus(window)) == 0.0, name + " window of a larger array");
+                check(maxAbs(MatrixIO.readFloatMatrix(in).widen().minus(FloatMatrix.narrow(A).widen())) == 0.0,
+                        name + " float matrix");
+                LUDecomposition lu = MatrixIO.readLU(in);
+                check(lu.det() == A.lu().det() && maxAbs(lu.solve(B).minus(A.lu().solve(B))) == 0.0, name + " LU");
+                Matrix C = random(n + 7, 2);
+                check(maxAbs(MatrixIO.readQR(in).solve(C).minus(T.qr().solve(C))) == 0.0, name + " QR");
+                CholeskyDecomposition chol = MatrixIO.readCholesky(in);
+                check(chol.isSPD() && maxAbs(chol.solve(B).minus(S.cholesky().solve(B))) == 0.0, name + " Cholesky");
+                check(MatrixIO.readCholesky(in).isSPD() == A.cholesky().isSPD(), name + " Cholesky of a non-SPD matrix");
+                check(in.read(ByteBuffer.allocate(1)) == -1, name + " stream ends after the last record");
+            } catch (IOException e) {
+                check(false, name + ": " + e);
+            }
+        }
+
+        try {
+            Matrix A = random(4, 4);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            MatrixIO.write(A.lu(), Channels.newChannel(bytes));
+            byte[] record = bytes.toByteArray();
+            // Rows and columns at bytes 12 and 16, pivot sign at 24, pivots from 28.
+            int secondPivot = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN).getInt(32);
+            String[] names = {"pivot sign 3", "pivot 4", "pivot -1", "repeated pivot", "65536x65536 elements"};
+            int[][] corruptions = {{24, 3}, {28, 4}, {28, -1}, {28, secondPivot}, {12, 1 << 16, 16, 1 << 16}};
+            for (int t = 0; t < names.length; t++) {
+                byte[] bad = record.clone();
+                ByteBuffer view = ByteBuffer.wrap(bad).order(ByteOrder.LITTLE_ENDIAN);
+                int[] c = corruptions[t];
+                for (int e = 0; e < c.length; e += 2) {
+                    view.putInt(c[e], c[e + 1]);
+                }
+                try {
+                    MatrixIO.readLU(Channels.newChannel(new ByteArrayInputStream(bad)));
+                    check(false, "MatrixIO rejects " + names[t]);
+                } catch (IOException e) {
+                    check(true, "MatrixIO rejects " + names[t]);
+                }
+            }
+            byte[] truncated = new byte[record.length - 1];
+            System.arraycopy(record, 0, truncated, 0, truncated.length);
+            try {
+                MatrixIO.readLU(Channels.newChannel(new ByteArrayInputStream(truncated)));
+                check(false, "MatrixIO rejects a truncated record");
+            } catch (IOException e) {
+                check(true, "MatrixIO rejects a truncated record");
+            }
+        } catch (IOException e) {
+            check(false, "MatrixIO corrupt records: " + e);
+        }
+    }
+
+    /**
+     * MatrixBatch determinants, inverses and solves for every order with and
+     * without an unrolled kernel, against Matrix one by one, out of place and
+     * in place. A zero matrix in the batch is counted and gets NaN results.
+     */
+    private static void batch() {
+        int count = 400, zero = 17;
+        for (int n = 1; n <= 8; n++) {
+            String name = "MatrixBatch n = " + n;
+            MatrixBatch A = new MatrixBatch(n, count);
+            for (int b = 0; b < count; b++) {
+                A.set(b, b == zero ? new Matrix(n, n) : random(n, n));
+            }
+            double[] rhs = new double[n * count];
+            for (int t = 0; t < rhs.length; t++) {
+                rhs[t] = 2.0 * RANDOM.nextDouble() - 1.0;
+            }
+
+            double[] det = new double[count];
+            A.det(det);
+            MatrixBatch X = new MatrixBatch(n, count);
+            int singular = A.inverse(X);
+            double[] x = new double[n * count];
+            int unsolvable = A.solve(rhs, x);
+            check(singular == 1 && unsolvable == 1, name + " counts the zero matrix, " + singular + " and " + unsolvable);
+
+            double detDiff = 0.0, inverseDiff = 0.0, solveDiff = 0.0;
+            boolean nan = det[zero] == 0.0;
+            for (int b = 0; b < count; b++) {
+                Matrix Ab = A.get(b);
+                if (b == zero) {
+                    nan &= Double.isNaN(X.get(b, 0, 0)) && Double.isNaN(x[b]);
+                    continue;
+                }
+                double d = Ab.det();
+                detDiff = Math.max(detDiff, Math.abs(det[b] - d) / Math.max(1.0, Math.abs(d)));
+                Matrix inverse = Ab.inverse();
+                // Both results are off by up to about u * norm(inverse)^2 for elements in [-1, 1).
+                double scale = Math.max(1.0, maxAbs(inverse));
+                inverseDiff = Math.max(inverseDiff, maxAbs(X.get(b).minus(inverse)) / (scale * scale));
+                Matrix r = new Matrix(n, 1);
+                for (int i = 0; i < n; i++) {
+                    r.set(i, 0, rhs[i * count + b]);
+                }
+                Matrix solution = Ab.solve(r);
+                for (int i = 0; i < n; i++) {
+                    solveDiff = Math.max(solveDiff, Math.abs(x[i * count + b] - solution.get(i, 0)) / (scale * scale));
+                }
+            }
+            check(nan, name + " zero matrix has determinant 0 and NaN inverse and solution");
+            check(detDiff <= 1e-12, name + " det, relative difference " + detDiff);
+            check(inverseDiff <= 1e-12, name + " inverse, difference " + inverseDiff);
+            check(solveDiff <= 1e-12, name + " solve, difference " + solveDiff);
+
+            MatrixBatch Y = new MatrixBatch(A.data().clone(), n, count);
+            Y.inverse(Y);
+            check(Arrays.equals(Y.data(), X.data()), name + " inverse in place");
+            double[] y = rhs.clone();
+            A.solve(y, y);
+            check(Arrays.equals(y, x), name + " solve in place");
+        }
+    }
+
+    /**
+     * IncrementalInverse after element edits (Sherman-Morrison) and low-rank
+     * updates (Woodbury), with refactoring put off so the updates accumulate,
+     * against a fresh LU of the edited matrix; then edits that make the
+     * matrix singular and regular again.
+     */
+    private static void incremental() {
+        int n = 60;
+        Matrix A = random(n, n);
+        for (int i = 0; i < n; i++) {
+            A.set(i, i, A.get(i, i) + n / 4);
+        }
+        IncrementalInverse tracker = A.incremental();
+        tracker.setRefactorInterval(1000);
+
+        for (int e = 0; e < 30; e++) {
+            A.set(RANDOM.nextInt(n), RANDOM.nextInt(n), 2.0 * RANDOM.nextDouble() - 1.0);
+        }
+        check(tracker.updates() == 30, "IncrementalInverse applied 30 edits without refactoring, " + tracker.updates());
+        compareWithLU(A, "IncrementalInverse after 30 element edits");
+
+        for (int e = 0; e < 3; e++) {
+            tracker.update(random(n, 3), random(n, 3));
+        }
+        compareWithLU(A, "IncrementalInverse after 3 rank-3 updates");
+
+        // Row 0 becomes row 1, element by element: the last edit makes A singular.
+        for (int j = 0; j < n; j++) {
+            A.set(0, j, A.get(1, j));
+        }
+        check(!tracker.isNonSingular(), "IncrementalInverse notices a singular matrix");
+        try {
+            A.inverse();
+            check(false, "IncrementalInverse inverse of a singular matrix throws");
+        } catch (RuntimeException e) {
+            check("Matrix is singular.".equals(e.getMessage()), "IncrementalInverse inverse of a singular matrix throws: " + e);
+        }
+        A.set(0, 0, A.get(0, 0) + 1.0);
+        check(tracker.isNonSingular(), "IncrementalInverse recovers from a singular matrix");
+        compareWithLU(A, "IncrementalInverse after leaving a singular matrix");
+    }
+
+    /**
+     * Inverse and determinant of a tracked matrix against a fresh LU of a copy.
+     */
+    private static void compareWithLU(Matrix A, String name) {
+        LUDecomposition lu = new LUDecomposition(A.copy());
+        Matrix inverse = lu.inverse();
+        double diff = maxAbs(A.inverse().minus(inverse)) / maxAbs(inverse);
+        check(diff <= 1e-10, name + ", inverse relative difference " + diff);
+        double detDiff = Math.abs(A.det() - lu.det()) / Math.abs(lu.det());
+        check(detDiff <= 1e-10, name + ", det relative difference " + detDiff);
+    }
+
+    /**
+     * CG on a symmetric positive definite 2D Laplacian, BiCGSTAB and GMRES on
+     * a nonsymmetric convection-diffusion operator, each plain and
+     * preconditioned, against a direct solve of the dense matrix.
+     */
+    private static void krylov() {
+        int g = 20;
+        SparseMatrix laplacian = grid(g, 0.0), convection = grid(g, 0.3);
+        double[] b = new double[g * g];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = 2.0 * RANDOM.nextDouble() - 1.0;
+        }
+        krylov("CG", new ConjugateGradient(), laplacian, b);
+        ConjugateGradient jacobi = new ConjugateGradient();
+        jacobi.setPreconditioner(new JacobiPreconditioner(laplacian));
+        krylov("CG with Jacobi", jacobi, laplacian, b);
+        ConjugateGradient ilu = new ConjugateGradient();
+        ilu.setPreconditioner(new ILU0Preconditioner(laplacian));
+        krylov("CG with ILU(0)", ilu, laplacian, b);
+
+        IterativeSolver[] solvers = {new BiCGSTAB(), new BiCGSTAB(), new GMRES(), new GMRES()};
+        for (int t = 0; t < solvers.length; t++) {
+            String name = solvers[t] instanceof GMRES ? "GMRES" : "BiCGSTAB";
+            if (t % 2 == 1) {
+                solvers[t].setPreconditioner(new ILU0Preconditioner(convection));
+                name += " with ILU(0)";
+            }
+            krylov(name, solvers[t], convection, b);
+        }
+    }
+
+    private static void krylov(String name, IterativeSolver solver, SparseMatrix A, double[] b) {
+        SolverResult result = solver.solve(A, b);
+        check(result.isConverged() && result.residual() <= solver.tolerance(),
+                name + " converges, residual " + result.residual() + " after " + result.iterations());
+        Matrix direct = A.toDense().solve(new Matrix(b, b.length, 1));
+        double[] x = result.solution();
+        double diff = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            diff = Math.max(diff, Math.abs(x[i] - direct.get(i, 0)));
+        }
+        diff /= maxAbs(direct);
+        check(diff <= 1e-7, name + " against a direct solve, relative difference " + diff);
+    }
+
+    /**
+     * Five-point operator on a g-by-g grid: 4 on the diagonal, -1 to the
+     * vertical neighbours and -1 -/+ c to the left and right ones.
+     */
+    private static SparseMatrix grid(int g, double c) {
+        int n = g * g;
+        int[] r = new int[5 * n], col = new int[5 * n];
+        double[] v = new double[5 * n];
+        int count = 0;
+        for (int i = 0; i < g; i++) {
+            for (int j = 0; j < g; j++) {
+                int p = i * g + j;
+                r[count] = p;
+                col[count] = p;
+                v[count++] = 4.0;
+                int[][] neighbours = {{i - 1, j}, {i + 1, j}, {i, j - 1}, {i, j + 1}};
+                double[] weights = {-1.0, -1.0, -1.0 - c, -1.0 + c};
+                for (int k = 0; k < 4; k++) {
+                    int ni = neighbours[k][0], nj = neighbours[k][1];
+                    if (ni >= 0 && ni < g && nj >= 0 && nj < g) {
+                        r[count] = p;
+                        col[count] = ni * g + nj;
+                        v[count++] = weights[k];
+                    }
+                }
+            }
+        }
+        return SparseMatrix.fromTriplets(n, n, r, col, v, count);
+    }
+
+    /**
+     * Symmetric eigendecompositions: residual A*V - V*D, orthogonality of V
+     * and ascending eigenvalues, down to 0x0 and 1x1. Lanczos top-k on the
+     * dense matrix and on a sparse one against the full decomposition.
+     */
+    private static void eigen() {
+        int[] sizes = {0, 1, 2, 7, 64, 150};
+        for (int n : sizes) {
+            String name = "Eigenvalues " + n + "x" + n;
+            Matrix R = random(n, n);
+            // R + R' is symmetric bit for bit.
+            Matrix A = R.plus(R.transpose());
+            EigenvalueDecomposition eig = new EigenvalueDecomposition(A);
+            Matrix V = eig.getV();
+            double[] d = eig.getRealEigenvalues();
+            double norm = Math.max(1.0, maxAbs(A)) * Math.max(1, n);
+            check(maxAbs(A.mult(V).minus(V.mult(eig.getD()))) <= 1e-13 * norm, name + " residual A*V - V*D");
+            check(maxAbs(V.transpose().mult(V).minus(Matrix.identity(n, n))) <= 1e-13 * Math.max(1, n),
+                    name + " V is orthogonal");
+            boolean sorted = d.length == n;
+            for (int i = 1; i < n; i++) {
+                sorted &= d[i - 1] <= d[i];
+            }
+            check(sorted, name + " eigenvalues ascending");
+            if (n < 7) {
+                continue;
+            }
+            lanczos("dense", A, A, d);
+            Matrix S = sparseRandom(n, n, 0.05);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < i; j++) {
+                    S.set(i, j, S.get(j, i));
+                }
+                // A spread-out diagonal keeps the top eigenvalues apart.
+                S.set(i, i, i);
+            }
+            lanczos("sparse", SparseMatrix.fromDense(S), S, new EigenvalueDecomposition(S).getRealEigenvalues());
+        }
+    }
+
+    /**
+     * The 4 largest eigenpairs by Lanczos against all eigenvalues in ascending order.
+     */
+    private static void lanczos(String kind, RealMatrix A, Matrix dense, double[] all) {
+        int n = all.length, k = 4;
+        String name = "Lanczos top " + k + " of " + n + "x" + n + " " + kind;
+        EigenResult top = new LanczosEigenSolver(k).solve(A);
+        double[] values = top.eigenvalues();
+        double scale = Math.max(Math.abs(all[0]), Math.abs(all[n - 1]));
+        double valueDiff = 0.0;
+        for (int i = 0; i < k; i++) {
+            valueDiff = Math.max(valueDiff, Math.abs(values[i] - all[n - 1 - i]) / scale);
+        }
+        Matrix Y = top.eigenvectors();
+        Matrix AY = dense.mult(Y);
+        double residual = 0.0;
+        for (int j = 0; j < k; j++) {
+            for (int i = 0; i < n; i++) {
+                residual = Math.max(residual, Math.abs(AY.get(i, j) - values[j] * Y.get(i, j)) / scale);
+            }
+        }
+        check(top.isConverged(), name + " converges");
+        check(valueDiff <= 1e-9, name + " eigenvalues, relative difference " + valueDiff);
+        check(residual <= 1e-8, name + " residual A*y - theta*y " + residual);
+    }
+
+    /**
+     * STRASSEN against CLASSICAL within the normwise bound documented in
+     * {@link Strassen}, on odd and non-power-of-two shapes that take the
+     * peeling paths. Crossover 1 recurses down to single elements; a
+     * crossover above every dimension never recurses, so the two products
+     * must then be identical.
+     */
+    private static void strassen() {
+        int[][] shapes = {{33, 33, 33}, {63, 65, 47}, {100, 100, 100}, {129, 131, 127}, {200, 75, 301}, {257, 257, 257}};
+        int[] crossovers = {1, 16, 48, 1000};
+        int saved = Strassen.crossover();
+        try {
+            for (int n0 : crossovers) {
+                Strassen.setCrossover(n0);
+                for (int[] s : shapes) {
+                    int m = s[0], n = s[1], k = s[2];
+                    String name = "Strassen " + m + "x" + k + " * " + k + "x" + n + ", crossover " + n0;
+                    Matrix A = random(m, k), B = random(k, n);
+                    Matrix C = A.mult(B, MultiplicationAlgorithm.CLASSICAL);
+                    double diff = maxAbs(A.mult(B, MultiplicationAlgorithm.STRASSEN).minus(C));
+                    if (Math.min(m, Math.min(n, k)) <= n0) {
+                        check(diff == 0.0, name + " equals classical, difference " + diff);
+                    } else {
+                        // Both products are within their bounds of the exact one.
+                        double scale = maxAbs(A) * maxAbs(B);
+                        double allowed = (strassenBound(m, n, k, n0) + (double) k * k * U) * scale;
+                        check(diff <= allowed, name + " difference " + diff + " above bound " + allowed);
+                    }
+                }
+            }
+        } finally {
+            Strassen.setCrossover(saved);
+        }
+    }
+
+    /**
+     * ((n / n0)^log2(18) * (n0^2 + 6 * n0) - 6 * n) * u, with n the largest
+     * dimension and n0 the largest dimension of the blocks where recursion stops.
+     */
+    private static double strassenBound(int m, int n, int k, int crossover) {
+        int bm = m, bn = n, bk = k;
+        while (bm > crossover && bn > crossover && bk > crossover) {
+            bm /= 2;
+            bn /= 2;
+            bk /= 2;
+        }
+        double size = Math.max(m, Math.max(n, k));
+        double leaf = Math.max(bm, Math.max(bn, bk));
+        double log2of18 = Math.log(18.0) / Math.log(2.0);
+        return (Math.pow(size / leaf, log2of18) * (leaf * leaf + 6 * leaf) - 6 * size) * U;
+    }
+
+    /**
+     * Elements uniform in [-1, 1), the same on every run.
+     */
+    private static Matrix random(int rows, int columns) {
+        Matrix A = new Matrix(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                A.set(i, j, 2.0 * RANDOM.nextDouble() - 1.0);
+            }
+        }
+        return A;
+    }
+
+    /**
+     * Elements uniform in [-1, 1) with the given probability, zero otherwise.
+     */
+    private static Matrix sparseRandom(int rows, int columns, double density) {
+        Matrix A = new Matrix(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (RANDOM.nextDouble() < density) {
+                    A.set(i, j, 2.0 * RANDOM.nextDouble() - 1.0);
+                }
+            }
+        }
+        return A;
+    }
+
+    private static double maxAbs(Matrix A) {
+        double m = 0.0;
+        for (int i = 0; i < A.rows(); i++) {
+            for (int j = 0; j < A.columns(); j++) {
+                m = Math.max(m, Math.abs(A.get(i, j)));
+            }
+        }
+        return m;
+    }
+
+    private static void check(boolean ok, String what) {
+        checks++;
+        if (!ok) {
+            failures++;
+            System.out.println("FAILED: " + what);
+        }
+    }
+}
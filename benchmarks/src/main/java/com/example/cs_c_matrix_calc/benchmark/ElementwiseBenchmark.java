@@ -0,0 +1,70 @@
+package com.example.cs_c_matrix_calc.benchmark;
+
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Element-wise operations into a preallocated destination, so only the kernel
+ * is timed. The shapes are rows x columns: narrow matrices show the cost of
+ * short per-row loops, and square ones show the streaming rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElementwiseBenchmark {
+
+    @Param({"100000x3", "4096x16", "64x64", "512x512", "2048x2048"})
+    public String shape;
+
+    private Matrix a, b, c;
+
+    @Setup
+    public void setUp() {
+        String[] dims = shape.split("x");
+        int rows = Integer.parseInt(dims[0]);
+        int columns = Integer.parseInt(dims[1]);
+        a = Matrix.random(rows, columns);
+        b = Matrix.random(rows, columns);
+        c = new Matrix(rows, columns);
+    }
+
+    @Benchmark
+    public Matrix plus() {
+        return a.plus(b, c);
+    }
+
+    @Benchmark
+    public Matrix minus() {
+        return a.minus(b, c);
+    }
+
+    @Benchmark
+    public Matrix uminus() {
+        return c.uminusInPlace();
+    }
+
+    @Benchmark
+    public Matrix scale() {
+        return c.scaleInPlace(0.5);
+    }
+
+    @Benchmark
+    public Matrix axpy() {
+        return c.axpy(1e-3, a);
+    }
+}
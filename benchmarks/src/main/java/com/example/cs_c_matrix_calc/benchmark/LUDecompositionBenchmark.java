@@ -0,0 +1,65 @@
+package com.example.cs_c_matrix_calc.benchmark;
+
+import com.example.cs_c_matrix_calc.matrix.LUDecomposition;
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LUDecomposition of a square n-by-n matrix, and a solve with one right hand side.
+ * The Into variants reuse the factors and the result, -prof gc should show no allocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LUDecompositionBenchmark {
+
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    private Matrix a, rhs, x;
+    private LUDecomposition lu, reused;
+
+    @Setup
+    public void setUp() {
+        a = Matrix.random(size, size);
+        rhs = Matrix.random(size, 1);
+        lu = new LUDecomposition(a);
+        reused = new LUDecomposition(a);
+        x = new Matrix(size, 1);
+    }
+
+    @Benchmark
+    public LUDecomposition factor() {
+        return new LUDecomposition(a);
+    }
+
+    @Benchmark
+    public LUDecomposition factorInto() {
+        return reused.decompose(a);
+    }
+
+    @Benchmark
+    public Matrix solve() {
+        return lu.solve(rhs);
+    }
+
+    @Benchmark
+    public Matrix solveInto() {
+        return lu.solve(rhs, x);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.cs_c_matrix_calc.benchmark;
+
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import com.example.cs_c_matrix_calc.matrix.MultiplicationAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Square n-by-n Matrix operations.
+ * inverse and det drop the cached factorization first, so every call pays
+ * for a full LU like a freshly built matrix would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+
+    @Param({"4", "16", "64", "256", "1024", "2048"})
+    public int size;
+
+    private Matrix a, b;
+
+    @Setup
+    public void setUp() {
+        a = Matrix.random(size, size);
+        b = Matrix.random(size, size);
+    }
+
+    @Benchmark
+    public Matrix mult() {
+        return a.mult(b);
+    }
+
+    @Benchmark
+    public Matrix multStrassen() {
+        return a.mult(b, MultiplicationAlgorithm.STRASSEN);
+    }
+
+    @Benchmark
+    public Matrix plus() {
+        return a.plus(b);
+    }
+
+    @Benchmark
+    public Matrix transpose() {
+        return a.transpose();
+    }
+
+    @Benchmark
+    public Matrix inverse() {
+        a.invalidate();
+        return a.inverse();
+    }
+
+    @Benchmark
+    public double det() {
+        a.invalidate();
+        return a.det();
+    }
+}
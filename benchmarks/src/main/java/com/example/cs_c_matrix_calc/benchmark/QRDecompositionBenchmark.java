@@ -0,0 +1,57 @@
+package com.example.cs_c_matrix_calc.benchmark;
+
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import com.example.cs_c_matrix_calc.matrix.QRDecomposition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QRDecomposition of square and tall-skinny matrices, shape given as rows x columns,
+ * and a least squares solve with one right hand side.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QRDecompositionBenchmark {
+
+    @Param({"4x4", "16x16", "64x64", "256x256", "1024x1024", "2048x2048",
+            "256x16", "1024x64", "2048x256"})
+    public String shape;
+
+    private Matrix a, rhs;
+    private QRDecomposition qr;
+
+    @Setup
+    public void setUp() {
+        int x = shape.indexOf('x');
+        int rows = Integer.parseInt(shape.substring(0, x));
+        int columns = Integer.parseInt(shape.substring(x + 1));
+        a = Matrix.random(rows, columns);
+        rhs = Matrix.random(rows, 1);
+        qr = new QRDecomposition(a);
+    }
+
+    @Benchmark
+    public QRDecomposition factor() {
+        return new QRDecomposition(a);
+    }
+
+    @Benchmark
+    public Matrix solve() {
+        return qr.solve(rhs);
+    }
+}
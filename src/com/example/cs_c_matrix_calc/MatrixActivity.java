@@ -2,8 +2,12 @@ package com.example.cs_c_matrix_calc;
 
 import android.app.Activity;
 import android.app.Dialog;
+import android.app.ProgressDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
@@ -12,13 +16,21 @@ import android.widget.Spinner;
 import android.widget.Toast;
 import com.example.cs_c_matrix_calc.apapter.MatrixGridAdapter;
 import com.example.cs_c_matrix_calc.apapter.ResultMatrixAdapter;
+import com.example.cs_c_matrix_calc.engine.MatrixCalcEngine;
 import com.example.cs_c_matrix_calc.matrix.Matrix;
 import com.example.cs_c_matrix_calc.matrix.utils.MatrixOperation;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * Created by cs_c on 5/15/14.
  */
-public class MatrixActivity extends Activity implements View.OnClickListener {
+public class MatrixActivity extends Activity implements View.OnClickListener, MatrixCalcEngine.Listener {
+    private static final long CALC_TIMEOUT_SECONDS = 30;
+
     private Spinner mMatrixSize;
     private GridView mGvMatrixFirst;
     private GridView mGvMatrixSecond;
@@ -26,17 +38,38 @@ public class MatrixActivity extends Activity implements View.OnClickListener {
     private MatrixGridAdapter mSecondAdapter;
     private int size = 2;
     private MatrixOperation mOperation = MatrixOperation.NONE;
-    double[][] result;
+    Matrix result;
+    private MatrixCalcEngine mEngine;
+    private MatrixCalcEngine.Job mJob;
+    private ProgressDialog mProgress;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.calc_activity);
         mOperation = (MatrixOperation) getIntent().getExtras().get("operation");
+        final Handler handler = new Handler(Looper.getMainLooper());
+        mEngine = new MatrixCalcEngine(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        });
         initView();
         setData();
     }
 
+    @Override
+    protected void onDestroy() {
+        if (mJob != null) {
+            mJob.cancel(true);
+            mJob = null;
+        }
+        dismissProgress();
+        mEngine.shutdown();
+        super.onDestroy();
+    }
+
     private void initView() {
         findViewById(R.id.btn_clear_matrix_activity).setOnClickListener(this);
         findViewById(R.id.btn_calc_matrix_activity).setOnClickListener(this);
@@ -86,40 +119,86 @@ public class MatrixActivity extends Activity implements View.OnClickListener {
                 setMatrixSize();
                 break;
             case R.id.btn_calc_matrix_activity:
-                Toast.makeText(this, "Calc", Toast.LENGTH_SHORT).show();
                 doCalc();
                 break;
         }
+    }
+
+    private void doCalc() {
+        if (mJob != null) {
+            // Still busy with the previous calculation.
+            return;
+        }
+        Matrix A, B;
+        try {
+            A = mFirstAdapter.toMatrix();
+            B = mSecondAdapter.toMatrix();
+        } catch (NumberFormatException e) {
+            Toast.makeText(MatrixActivity.this, e.getMessage(), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        showProgress();
+        mJob = mEngine.submit(mOperation, A, B, CALC_TIMEOUT_SECONDS, TimeUnit.SECONDS, this);
+    }
+
+    private void showProgress() {
+        mProgress = new ProgressDialog(MatrixActivity.this);
+        mProgress.setMessage("Calculating...");
+        mProgress.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        mProgress.setMax(100);
+        mProgress.setCancelable(true);
+        mProgress.setOnCancelListener(new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialogInterface) {
+                if (mJob != null) {
+                    mJob.cancel(true);
+                }
+            }
+        });
+        mProgress.show();
+    }
+
+    private void dismissProgress() {
+        if (mProgress != null) {
+            mProgress.dismiss();
+            mProgress = null;
+        }
+    }
+
+    @Override
+    public void onProgress(MatrixCalcEngine.Job job, float progress) {
+        if (job == mJob && mProgress != null) {
+            mProgress.setProgress((int) (progress * 100));
+        }
+    }
+
+    @Override
+    public void onResult(MatrixCalcEngine.Job job, Matrix matrix) {
+        if (job != mJob) {
+            return;
+        }
+        mJob = null;
+        dismissProgress();
+        result = matrix;
         ShowResult showResult = new ShowResult(MatrixActivity.this);
         showResult.show();
-
     }
 
-    private void doCalc() {
-        double[][] matrixA = mFirstAdapter.mNumberArray;
-        double[][] matrixB = mSecondAdapter.mNumberArray;
-        Matrix A = new Matrix(matrixA);
-        Matrix B = new Matrix(matrixB);
-
-        switch (mOperation) {
-            case SUM:
-                result = A.plus(B).matrix();
-                break;
-            case MINUS:
-                result = A.minus(B).matrix();
-                break;
-            case MULTIPLIED:
-                result = A.mult(B).matrix();
-                break;
-            case DIVIDED:
-                result = A.mult(B.inverse()).matrix();
-                break;
-            case INVERSE:
-                result = A.inverse().matrix();
-                break;
-            default:
-                Toast.makeText(MatrixActivity.this, "Wrong operation passed!", Toast.LENGTH_SHORT).show();
+    @Override
+    public void onFailure(MatrixCalcEngine.Job job, Throwable error) {
+        if (job != mJob) {
+            return;
+        }
+        mJob = null;
+        dismissProgress();
+        String message;
+        if (error instanceof TimeoutException || error instanceof CancellationException) {
+            message = error.getMessage();
+        } else {
+            message = "Error: " + error.getMessage();
         }
+        Toast.makeText(MatrixActivity.this, message, Toast.LENGTH_SHORT).show();
     }
 
     private class ShowResult extends Dialog {
@@ -130,13 +209,13 @@ public class MatrixActivity extends Activity implements View.OnClickListener {
             setTitle("Result");
             setContentView(R.layout.dialog_result);
             resultGrid = (GridView) findViewById(R.id.gv_matrix_result_dialog);
-            resultGrid.setNumColumns(size);
+            resultGrid.setNumColumns(result.columns());
         }
 
         @Override
         public void show() {
             super.show();
-            resultGrid.setAdapter(new ResultMatrixAdapter(MatrixActivity.this, size, result));
+            resultGrid.setAdapter(new ResultMatrixAdapter(MatrixActivity.this, result));
         }
     }
 }
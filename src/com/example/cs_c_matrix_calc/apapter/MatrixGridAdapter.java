@@ -9,23 +9,66 @@ import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.EditText;
 import com.example.cs_c_matrix_calc.R;
+import com.example.cs_c_matrix_calc.matrix.Matrix;
 
 /**
  * Created by cs_c on 5/15/14.
+ * <p/>
+ * Cells keep the raw text typed into them; it is parsed only in
+ * {@link #toMatrix()}, and only for cells edited since the last call.
  */
 public class MatrixGridAdapter extends BaseAdapter {
     private int mMatrixSize;
     private Context mContext;
-    public double[][] mNumberArray;
+    private String[] mText;
+    private boolean[] mDirty;
+    private Matrix mValues;
 
 
     public MatrixGridAdapter(Context context, int size) {
         mContext = context;
         mMatrixSize = size;
-        mNumberArray = new double[size][size];
+        mText = new String[size * size];
+        mDirty = new boolean[size * size];
+        mValues = new Matrix(size, size);
 
     }
 
+    /**
+     * Parse the edited cells. Empty cells are zero.
+     *
+     * @return a new matrix with the values of the grid
+     * @throws NumberFormatException a cell does not hold a number
+     */
+    public Matrix toMatrix() {
+        double[] values = mValues.data();
+        int off = mValues.offset(), ld = mValues.ld();
+        for (int p = 0; p < mText.length; p++) {
+            if (!mDirty[p]) {
+                continue;
+            }
+            int i = p / mMatrixSize, j = p % mMatrixSize;
+            values[off + i * ld + j] = parse(mText[p], i, j);
+            mDirty[p] = false;
+        }
+        return mValues.copy();
+    }
+
+    private static double parse(String text, int i, int j) {
+        String s = text == null ? "" : text.trim();
+        if (s.length() == 0) {
+            return 0.0;
+        }
+        if (s.equals("-")) {
+            return -1.0;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Wrong number at " + (i + 1) + "x" + (j + 1) + ": " + s);
+        }
+    }
+
     @Override
     public int getCount() {
         return mMatrixSize * mMatrixSize;
@@ -51,37 +94,41 @@ public class MatrixGridAdapter extends BaseAdapter {
                     .getSystemService(Context.LAYOUT_INFLATER_SERVICE);
             convertView = mInflater.inflate(R.layout.item_grid, null);
             holder.etComment = (EditText) convertView.findViewById(R.id.etItem_item_grid);
+            // One listener per cell view, following the position it is bound to.
+            final ViewHolder finalHolder = holder;
+            holder.etComment.addTextChangedListener(new TextWatcher() {
+
+                public void afterTextChanged(Editable s) {
+                    int pos = finalHolder.position;
+                    if (pos >= 0) {
+                        mText[pos] = s.toString();
+                        mDirty[pos] = true;
+                    }
+                }
+
+                public void beforeTextChanged(CharSequence s, int start,
+                                              int count, int after) {
+                }
+
+                public void onTextChanged(CharSequence s, int start,
+                                          int before, int count) {
+                }
+            });
             convertView.setTag(holder);
         } else {
             holder = (ViewHolder) convertView.getTag();
         }
-        holder.etComment.setTag(position);
+        // Unbind while the recycled view gets this cell's text.
+        holder.position = -1;
+        holder.etComment.setText(mText[position]);
         holder.etComment.setHint((position / mMatrixSize) + 1 + "x" + ((position % mMatrixSize) + 1));
-        final ViewHolder finalHolder = holder;
-        holder.etComment.addTextChangedListener(new TextWatcher() {
-
-            public void afterTextChanged(Editable s) {
-            }
-
-            public void beforeTextChanged(CharSequence s, int start,
-                                          int count, int after) {
-            }
-
-            public void onTextChanged(CharSequence s, int start,
-                                      int before, int count) {
-                int pos = Integer.parseInt(finalHolder.etComment.getTag().toString());
-                try {
-                    mNumberArray[pos / mMatrixSize][pos % mMatrixSize] =
-                            finalHolder.etComment.getText().toString().trim().equals("-")
-                                    ? -1 : Integer.parseInt(finalHolder.etComment.getText().toString());
-                }catch (Exception e){}
-            }
-        });
+        holder.position = position;
         return convertView;
     }
 
     public class ViewHolder {
         EditText etComment;
+        int position = -1;
     }
 
-}
\ No newline at end of file
+}
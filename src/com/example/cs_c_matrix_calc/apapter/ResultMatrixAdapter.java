@@ -7,26 +7,29 @@ import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 import android.widget.EditText;
 import com.example.cs_c_matrix_calc.R;
+import com.example.cs_c_matrix_calc.matrix.Matrix;
 
 /**
  * Created by cs_c on 5/15/14.
+ * <p/>
+ * Each value is formatted on its first bind and the string is reused after.
  */
 public class ResultMatrixAdapter extends BaseAdapter {
-    private int mMatrixSize;
     private Context mContext;
-    public double[][] mNumberArray;
+    private Matrix mResult;
+    private String[] mText;
 
 
-    public ResultMatrixAdapter(Context _context, int _size, double[][] _numArray) {
+    public ResultMatrixAdapter(Context _context, Matrix _result) {
         mContext = _context;
-        mMatrixSize = _size;
-        mNumberArray = _numArray;
+        mResult = _result;
+        mText = new String[_result.rows() * _result.columns()];
 
     }
 
     @Override
     public int getCount() {
-        return mMatrixSize * mMatrixSize;
+        return mText.length;
     }
 
     @Override
@@ -54,7 +57,13 @@ public class ResultMatrixAdapter extends BaseAdapter {
         } else {
             holder = (ViewHolder) convertView.getTag();
         }
-        holder.etComment.setText(mNumberArray[position / mMatrixSize][position % mMatrixSize] + "");
+        String text = mText[position];
+        if (text == null) {
+            int columns = mResult.columns();
+            text = String.valueOf(mResult.get(position / columns, position % columns));
+            mText[position] = text;
+        }
+        holder.etComment.setText(text);
         return convertView;
     }
 
@@ -62,4 +71,4 @@ public class ResultMatrixAdapter extends BaseAdapter {
         EditText etComment;
     }
 
-}
\ No newline at end of file
+}
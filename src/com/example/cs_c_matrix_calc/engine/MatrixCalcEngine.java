@@ -0,0 +1,329 @@
+package com.example.cs_c_matrix_calc.engine;
+
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import com.example.cs_c_matrix_calc.matrix.utils.MatrixOperation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs {@link MatrixOperation}s off the caller's thread.
+ * <p/>
+ * Each submitted operation becomes a {@link Job}, a Future of the result
+ * that also reports progress and its outcome to a {@link Listener}. Listener
+ * calls go through the callback executor given to the constructor, e.g. one
+ * that posts to a UI thread. Jobs can be cancelled, and a timeout cancels
+ * them on its own. The kernels do not poll for interruption, so a cancelled
+ * job stops at its next checkpoint: between the row bands of a product or
+ * between the factorization and the solve of an inverse or a division.
+ * <p/>
+ * The engine has no Android dependencies.
+ */
+public class MatrixCalcEngine {
+
+    /**
+     * Row bands a product is split into for progress and cancellation.
+     */
+    private static final int BANDS = 16;
+
+    /**
+     * Receives progress and the outcome of a job on the callback executor.
+     */
+    public interface Listener {
+
+        /**
+         * @param progress fraction of the work done, 0 to 1.
+         */
+        void onProgress(Job job, float progress);
+
+        void onResult(Job job, Matrix result);
+
+        /**
+         * @param error CancellationException if the job was cancelled,
+         *              TimeoutException if it ran out of time, otherwise the
+         *              exception the operation threw.
+         */
+        void onFailure(Job job, Throwable error);
+    }
+
+    private final ExecutorService executor;
+    private final Executor callbacks;
+    private final boolean ownsExecutor;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Engine with its own worker thread; listeners are called on that thread.
+     */
+    public MatrixCalcEngine() {
+        this(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    /**
+     * Engine with its own worker thread.
+     *
+     * @param callbacks runs the listener calls
+     */
+    public MatrixCalcEngine(Executor callbacks) {
+        this(Executors.newSingleThreadExecutor(daemonThreads("matrix-calc")), callbacks, true);
+    }
+
+    /**
+     * @param executor  runs the jobs, not shut down by {@link #shutdown()}
+     * @param callbacks runs the listener calls
+     */
+    public MatrixCalcEngine(ExecutorService executor, Executor callbacks) {
+        this(executor, callbacks, false);
+    }
+
+    private MatrixCalcEngine(ExecutorService executor, Executor callbacks, boolean ownsExecutor) {
+        this.executor = executor;
+        this.callbacks = callbacks;
+        this.ownsExecutor = ownsExecutor;
+        timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("matrix-calc-timer"));
+    }
+
+    /**
+     * Submit an operation without a time limit.
+     *
+     * @see #submit(MatrixOperation, Matrix, Matrix, long, TimeUnit, Listener)
+     */
+    public Job submit(MatrixOperation operation, Matrix A, Matrix B, Listener listener) {
+        return submit(operation, A, B, 0, TimeUnit.MILLISECONDS, listener);
+    }
+
+    /**
+     * Submit an operation. A and B must not be modified until the job is done.
+     *
+     * @param operation what to compute
+     * @param A         first operand
+     * @param B         second operand, ignored by INVERSE
+     * @param timeout   time after which the job is cancelled, 0 for none
+     * @param unit      unit of timeout
+     * @param listener  receives progress and the outcome, may be null
+     * @return the job, a Future of the result
+     */
+    public Job submit(MatrixOperation operation, Matrix A, Matrix B,
+                      long timeout, TimeUnit unit, Listener listener) {
+        Job job = new Job(operation, A, B, listener);
+        executor.execute(job);
+        if (timeout > 0) {
+            job.timeout = timer.schedule(job.expiry(), timeout, unit);
+        }
+        return job;
+    }
+
+    /**
+     * Stop the timer and, if the engine created it, the worker thread.
+     * Running jobs are cancelled only if the engine owns the executor.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The computation of one operation, run on the job's thread.
+     */
+    static Matrix compute(MatrixOperation operation, Matrix A, Matrix B, Job job) {
+        if (operation == MatrixOperation.NONE) {
+            throw new IllegalArgumentException("Wrong operation passed!");
+        }
+        switch (operation) {
+            case MULTIPLIED:
+                return multiply(A, B, job);
+            case INVERSE:
+                // Factor first, the inverse then comes from the cached factorization:
+                // Cholesky or LU when A is square, QR otherwise.
+                if (A.rows() != A.columns()) {
+                    A.qr();
+                } else if (!A.cholesky().isNonSingular()) {
+                    A.lu();
+                }
+                job.step(0.5f);
+                break;
+            case DIVIDED:
+                // A.divide(B) solves with the cached LU of a square B; for any other
+                // B it factors B' itself, so there is nothing to prepare.
+                if (B.rows() == B.columns() && A.columns() == B.columns()) {
+                    B.lu();
+                    job.step(0.5f);
+                }
+                break;
+            default:
+                break;
+        }
+        return operation.expression(A, B).evaluate();
+    }
+
+    /**
+     * A * B one band of rows at a time.
+     */
+    private static Matrix multiply(Matrix A, Matrix B, Job job) {
+        if (A.columns() != B.rows()) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        Matrix C = new Matrix(A.rows(), B.columns());
+        int band = Math.max(1, (A.rows() + BANDS - 1) / BANDS);
+        for (int i0 = 0; i0 < A.rows(); i0 += band) {
+            int rb = Math.min(band, A.rows() - i0);
+            Matrix a = new Matrix(A.data(), A.offset() + i0 * A.ld(), A.ld(), rb, A.columns());
+            Matrix c = new Matrix(C.data(), i0 * C.ld(), C.ld(), rb, C.columns());
+            a.mult(B, c);
+            job.step((float) (i0 + rb) / A.rows());
+        }
+        return C;
+    }
+
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Computation of a job, handed to FutureTask before the job exists.
+     */
+    private static final class Computation implements Callable<Matrix> {
+        private final MatrixOperation operation;
+        private final Matrix A, B;
+        Job job;
+
+        Computation(MatrixOperation operation, Matrix A, Matrix B) {
+            this.operation = operation;
+            this.A = A;
+            this.B = B;
+        }
+
+        public Matrix call() {
+            job.step(0.0f);
+            Matrix result = compute(operation, A, B, job);
+            job.step(1.0f);
+            return result;
+        }
+    }
+
+    /**
+     * A submitted operation and the Future of its result.
+     */
+    public final class Job extends FutureTask<Matrix> {
+
+        private final MatrixOperation operation;
+        private final Listener listener;
+        private volatile float progress;
+        private volatile boolean timedOut;
+        volatile ScheduledFuture<?> timeout;
+
+        private Job(MatrixOperation operation, Matrix A, Matrix B, Listener listener) {
+            this(new Computation(operation, A, B), listener);
+        }
+
+        private Job(Computation computation, Listener listener) {
+            super(computation);
+            computation.job = this;
+            this.operation = computation.operation;
+            this.listener = listener;
+        }
+
+        public MatrixOperation operation() {
+            return operation;
+        }
+
+        /**
+         * @return fraction of the work done, 0 to 1.
+         */
+        public float progress() {
+            return progress;
+        }
+
+        /**
+         * @return true if the job was cancelled because it ran out of time.
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Checkpoint: record progress, or stop if the job was cancelled meanwhile.
+         */
+        void step(final float fraction) {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            progress = fraction;
+            if (listener != null) {
+                callbacks.execute(new Runnable() {
+                    public void run() {
+                        listener.onProgress(Job.this, fraction);
+                    }
+                });
+            }
+        }
+
+        Runnable expiry() {
+            return new Runnable() {
+                public void run() {
+                    if (!isDone()) {
+                        timedOut = true;
+                        cancel(true);
+                    }
+                }
+            };
+        }
+
+        @Override
+        protected void done() {
+            ScheduledFuture<?> t = timeout;
+            if (t != null) {
+                t.cancel(false);
+            }
+            if (listener == null) {
+                return;
+            }
+            Throwable error = null;
+            Matrix result = null;
+            if (isCancelled()) {
+                error = timedOut ? new TimeoutException("Calculation timed out.")
+                        : new CancellationException("Calculation cancelled.");
+            } else {
+                try {
+                    result = get();
+                } catch (ExecutionException e) {
+                    error = e.getCause();
+                } catch (InterruptedException e) {
+                    error = e;
+                }
+            }
+            final Throwable failure = error;
+            final Matrix value = result;
+            callbacks.execute(new Runnable() {
+                public void run() {
+                    if (failure != null) {
+                        listener.onFailure(Job.this, failure);
+                    } else {
+                        listener.onResult(Job.this, value);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Parallel;
+
+import java.io.Serializable;
+
+public class CholeskyDecomposition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Width of the column panels factored between two trailing updates.
+     */
+    private static final int BLOCK = 64;
+
+    /**
+     * Smallest pivot L(j,j)^2 of a nonsingular matrix, the threshold of
+     * {@link LUDecomposition#isNonSingular()}.
+     */
+    private static final double EPS = 1e-6;
+
+    private Matrix L;
+    private int n;
+    private boolean isspd;
+
+    /**
+     * Cholesky Decomposition, A = L*L'.
+     * Structure to access L and to tell whether A is symmetric positive definite.
+     * <p/>
+     * Blocked right-looking factorization: each diagonal block is factored, the
+     * panel below it is found by a triangular solve, and only the lower triangle
+     * of the trailing matrix is updated, block row by block row, with {@link Gemm}.
+     * A non-symmetric A is rejected by a cheap check before any factoring.
+     *
+     * @param A Square matrix
+     */
+    public CholeskyDecomposition(Matrix A) {
+        decompose(A);
+    }
+
+    /**
+     * Factor another matrix into this decomposition, reusing its storage when
+     * A has the same order as the previous one.
+     * Do not use it on a decomposition that a Matrix caches, see {@link Matrix#cholesky()}.
+     *
+     * @param A Square matrix
+     * @return this decomposition
+     */
+    public CholeskyDecomposition decompose(Matrix A) {
+        n = A.rows();
+        isspd = A.columns() == n && isSymmetric(A);
+        if (!isspd) {
+            return this;
+        }
+        if (L == null || L.rows() != n) {
+            L = new Matrix(n, n);
+        }
+        A.copyTo(L);
+        double[] l = L.data();
+
+        for (int k0 = 0; k0 < n && isspd; k0 += BLOCK) {
+            int k1 = Math.min(n, k0 + BLOCK);
+            isspd = factorPanel(l, k0, k1);
+            if (isspd && k1 < n) {
+                updateTrailing(l, k0, k1);
+            }
+        }
+
+        // Clear the upper triangle, which still holds A.
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                l[i * n + j] = 0.0;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Rebuild a decomposition from a stored factor, see {@link MatrixIO}.
+     *
+     * @param n Order of A.
+     * @param L Lower triangular factor, or null if A is not symmetric positive definite.
+     */
+    CholeskyDecomposition(int n, Matrix L) {
+        this.n = n;
+        this.L = L;
+        this.isspd = L != null;
+    }
+
+    /**
+     * @return order of A.
+     */
+    int order() {
+        return n;
+    }
+
+    /**
+     * @return the factor itself, null if A is not symmetric positive definite.
+     */
+    Matrix factor() {
+        return L;
+    }
+
+    private static boolean isSymmetric(Matrix A) {
+        double[] a = A.data();
+        int off = A.offset(), ld = A.ld();
+        for (int i = 0; i < A.rows(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (a[off + i * ld + j] != a[off + j * ld + i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Factor the diagonal block k0..k1-1 and solve for the panel below it.
+     *
+     * @return false if a pivot is not positive.
+     */
+    private boolean factorPanel(double[] l, int k0, int k1) {
+        for (int j = k0; j < k1; j++) {
+            int rowJ = j * n;
+            double d = l[rowJ + j] - Kernels.dot(j - k0, l, rowJ + k0, l, rowJ + k0);
+            if (!(d > 0.0)) {
+                return false;
+            }
+            double ljj = l[rowJ + j] = Math.sqrt(d);
+            for (int i = j + 1; i < n; i++) {
+                int rowI = i * n;
+                double s = l[rowI + j] - Kernels.dot(j - k0, l, rowI + k0, l, rowJ + k0);
+                l[rowI + j] = s / ljj;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A22 = A22 - L21*L21', lower triangle only, one block row per task.
+     */
+    private void updateTrailing(final double[] l, final int k0, final int k1) {
+        final int kb = k1 - k0;
+        final int m = n - k1;
+        // L21' as an explicit kb-by-m array so Gemm sees a plain row-major operand.
+        final double[] l21t = Workspace.local().doubles(Workspace.PANEL, kb * m);
+        for (int i = 0; i < m; i++) {
+            int rowI = (k1 + i) * n + k0;
+            for (int p = 0; p < kb; p++) {
+                l21t[p * m + i] = l[rowI + p];
+            }
+        }
+        int blocks = (m + BLOCK - 1) / BLOCK;
+        Parallel.forRange(0, blocks, (long) m * kb * BLOCK / 2, 1, new Parallel.RangeTask() {
+            public void run(int from, int to) {
+                for (int b = from; b < to; b++) {
+                    int i0 = b * BLOCK;
+                    int mb = Math.min(BLOCK, m - i0);
+                    Gemm.multiply(mb, i0 + mb, kb, -1.0,
+                            l, (k1 + i0) * n + k0, n,
+                            l21t, 0, m,
+                            l, (k1 + i0) * n + k1, n);
+                }
+            }
+        });
+    }
+
+    /**
+     * Is the matrix symmetric and positive definite?
+     *
+     * @return true if A is symmetric and positive definite.
+     */
+    public boolean isSPD() {
+        return isspd;
+    }
+
+    /**
+     * Is the matrix symmetric positive definite and not nearly singular?
+     * A pivot L(j,j)^2 below the threshold LU uses counts as singular, so
+     * {@link Matrix} can fall back to LU and report the same matrices as singular.
+     *
+     * @return true if A is symmetric positive definite with no pivot below 1e-6.
+     */
+    public boolean isNonSingular() {
+        if (!isspd) {
+            return false;
+        }
+        double[] l = L.data();
+        for (int j = 0; j < n; j++) {
+            double ljj = l[j * n + j];
+            if (ljj * ljj < EPS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return triangular factor.
+     *
+     * @return L
+     * @throws RuntimeException Matrix is not symmetric positive definite.
+     */
+    public Matrix getL() {
+        if (!isspd) {
+            throw new RuntimeException("Matrix is not symmetric positive definite.");
+        }
+        return L.copy();
+    }
+
+    /**
+     * Determinant
+     *
+     * @return det(A)
+     * @throws RuntimeException Matrix is not symmetric positive definite.
+     */
+    public double det() {
+        if (!isspd) {
+            throw new RuntimeException("Matrix is not symmetric positive definite.");
+        }
+        double[] l = L.data();
+        double d = 1.0;
+        for (int j = 0; j < n; j++) {
+            d *= l[j * n + j];
+        }
+        return d * d;
+    }
+
+    /**
+     * Solve A*X = B
+     *
+     * @param B A Matrix with as many rows as A and any number of columns.
+     * @return X so that L*L'*X = B
+     * @throws IllegalArgumentException Matrix row dimensions must agree.
+     * @throws RuntimeException         Matrix is not symmetric positive definite.
+     */
+    public Matrix solve(Matrix B) {
+        return solve(B, new Matrix(n, B.columns()));
+    }
+
+    /**
+     * Solve A*X = B into a given matrix, without allocating.
+     *
+     * @param B    A Matrix with as many rows as A and any number of columns.
+     * @param Xmat Matrix of the dimensions of B that receives X, may be B itself.
+     * @return Xmat
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     * @throws RuntimeException         Matrix is not symmetric positive definite.
+     */
+    public Matrix solve(Matrix B, Matrix Xmat) {
+        if (B.rows() != n) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        if (!isspd) {
+            throw new RuntimeException("Matrix is not symmetric positive definite.");
+        }
+
+        // Copy right hand side.
+        int nx = B.columns();
+        B.copyTo(Xmat);
+        Xmat.invalidate();
+        double[] X = Xmat.data();
+        int xo = Xmat.offset(), ldx = Xmat.ld();
+        double[] l = L.data();
+
+        // Solve L*Y = B;
+        for (int k = 0; k < n; k++) {
+            int rowK = xo + k * ldx;
+            double lkk = l[k * n + k];
+            for (int j = 0; j < nx; j++) {
+                X[rowK + j] /= lkk;
+            }
+            for (int i = k + 1; i < n; i++) {
+                double lik = l[i * n + k];
+                int rowI = xo + i * ldx;
+                for (int j = 0; j < nx; j++) {
+                    X[rowI + j] -= X[rowK + j] * lik;
+                }
+            }
+        }
+
+        // Solve L'*X = Y;
+        for (int k = n - 1; k >= 0; k--) {
+            int rowK = xo + k * ldx;
+            double lkk = l[k * n + k];
+            for (int j = 0; j < nx; j++) {
+                X[rowK + j] /= lkk;
+            }
+            for (int i = 0; i < k; i++) {
+                double lki = l[k * n + i];
+                int rowI = xo + i * ldx;
+                for (int j = 0; j < nx; j++) {
+                    X[rowI + j] -= X[rowK + j] * lki;
+                }
+            }
+        }
+        return Xmat;
+    }
+
+    /**
+     * Inverse of A.
+     * <p/>
+     * As LAPACK's potri: L is inverted in place of a copy, then the lower
+     * triangle of inverse(L)'*inverse(L) is formed and mirrored, about n^3/3
+     * multiply-adds against n^3 for solving with the identity. The result is
+     * exactly symmetric.
+     *
+     * @return inverse(A)
+     * @throws RuntimeException Matrix is not symmetric positive definite.
+     */
+    public Matrix inverse() {
+        if (!isspd) {
+            throw new RuntimeException("Matrix is not symmetric positive definite.");
+        }
+        Matrix Wmat = L.copy();
+        double[] w = Wmat.data();
+        double[] t = Workspace.local().doubles(Workspace.W, n);
+
+        // W = inverse(L), a row at a time: row i is -L(i, 0:i-1)*W(0:i-1, :) / L(i, i).
+        for (int i = 0; i < n; i++) {
+            int rowI = i * n;
+            for (int j = 0; j < i; j++) {
+                t[j] = 0.0;
+            }
+            for (int p = 0; p < i; p++) {
+                double lip = w[rowI + p];
+                int rowP = p * n;
+                for (int j = 0; j <= p; j++) {
+                    t[j] += lip * w[rowP + j];
+                }
+            }
+            double wii = 1.0 / w[rowI + i];
+            for (int j = 0; j < i; j++) {
+                w[rowI + j] = -t[j] * wii;
+            }
+            w[rowI + i] = wii;
+        }
+
+        // X = W'*W, lower triangle, accumulated over the rows of W, then mirrored.
+        Matrix Xmat = new Matrix(n, n);
+        double[] x = Xmat.data();
+        for (int p = 0; p < n; p++) {
+            int rowP = p * n;
+            for (int i = 0; i <= p; i++) {
+                double wpi = w[rowP + i];
+                int rowI = i * n;
+                for (int j = 0; j <= i; j++) {
+                    x[rowI + j] += wpi * w[rowP + j];
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                x[j * n + i] = x[i * n + j];
+            }
+        }
+        return Xmat;
+    }
+}
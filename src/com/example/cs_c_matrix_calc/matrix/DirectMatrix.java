@@ -0,0 +1,179 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * Matrix in native memory outside the Java heap.
+ * <p/>
+ * The tiles, see {@link TiledMatrix}, are stored in direct ByteBuffers in
+ * native byte order, so multi-GB matrices are never scanned or moved by the
+ * garbage collector; only the bounded tile cache lives on the heap. The
+ * total size is limited by -XX:MaxDirectMemorySize.
+ * <p/>
+ * {@link #close()} frees the native memory right away where the runtime
+ * allows it, otherwise it is returned once the collector finds the buffers
+ * unreachable. Results of operations are new matrices that must be closed
+ * as well.
+ */
+public class DirectMatrix extends TiledMatrix {
+
+    private ByteBuffer[] buffers;
+
+    /**
+     * Construct a rows-by-columns matrix of zeros.
+     *
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     * @throws OutOfMemoryError not enough direct memory
+     */
+    public DirectMatrix(int rows, int columns) {
+        this(rows, columns, DEFAULT_TILE_SIZE, DEFAULT_CACHED_TILES);
+    }
+
+    /**
+     * Construct a rows-by-columns matrix of zeros.
+     *
+     * @param rows        Number of rows.
+     * @param columns     Number of colums.
+     * @param tileSize    Rows and columns of a tile.
+     * @param cachedTiles Number of tiles kept in the heap, at least 4.
+     * @throws OutOfMemoryError not enough direct memory
+     */
+    public DirectMatrix(int rows, int columns, int tileSize, int cachedTiles) {
+        super(rows, columns, tileSize, cachedTiles);
+        buffers = new ByteBuffer[segmentCount()];
+        DoubleBuffer[] segments = new DoubleBuffer[buffers.length];
+        try {
+            for (int s = 0; s < buffers.length; s++) {
+                buffers[s] = ByteBuffer.allocateDirect((int) segmentBytes(s)).order(ByteOrder.nativeOrder());
+                segments[s] = buffers[s].asDoubleBuffer();
+            }
+        } catch (OutOfMemoryError e) {
+            free(buffers);
+            throw e;
+        }
+        attach(segments);
+    }
+
+    /**
+     * Copy a dense matrix into native memory.
+     *
+     * @param A dense matrix
+     * @return off-heap copy of A
+     */
+    public static DirectMatrix fromDense(Matrix A) {
+        DirectMatrix X = new DirectMatrix(A.rows(), A.columns());
+        X.copyFrom(A);
+        return X;
+    }
+
+    /**
+     * Product, one tile of the result at a time.
+     *
+     * @param other tiled matrix with the same tile size
+     * @return matrix * other
+     * @throws IllegalArgumentException Matrix inner dimensions or tile sizes must agree.
+     */
+    public DirectMatrix mult(TiledMatrix other) {
+        DirectMatrix X = new DirectMatrix(rows(), other.columns(), tileSize(), cachedTiles());
+        multInto(other, X);
+        return X;
+    }
+
+    /**
+     * Matrix transpose, tile by tile.
+     *
+     * @return matrix'
+     */
+    public DirectMatrix transpose() {
+        DirectMatrix X = new DirectMatrix(columns(), rows(), tileSize(), cachedTiles());
+        transposeInto(X);
+        return X;
+    }
+
+    /**
+     * C = matrix + other
+     *
+     * @param other tiled matrix with the same dimensions and tile size
+     * @return matrix + other
+     */
+    public DirectMatrix plus(TiledMatrix other) {
+        DirectMatrix X = new DirectMatrix(rows(), columns(), tileSize(), cachedTiles());
+        combineInto(other, 1.0, X);
+        return X;
+    }
+
+    /**
+     * C = matrix - other
+     *
+     * @param other tiled matrix with the same dimensions and tile size
+     * @return matrix - other
+     */
+    public DirectMatrix minus(TiledMatrix other) {
+        DirectMatrix X = new DirectMatrix(rows(), columns(), tileSize(), cachedTiles());
+        combineInto(other, -1.0, X);
+        return X;
+    }
+
+    /**
+     * LU factorization with partial pivoting, the factors in native memory.
+     *
+     * @return LU decomposition of matrix, close it to free the factors
+     * @throws IllegalArgumentException Matrix must be square.
+     */
+    public TiledLUDecomposition lu() {
+        if (rows() != columns()) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        return new TiledLUDecomposition(this, new DirectMatrix(rows(), columns(), tileSize(), cachedTiles()));
+    }
+
+    void release(DoubleBuffer[] segments) {
+        free(buffers);
+        buffers = null;
+    }
+
+    /**
+     * Free direct buffers without waiting for the collector: Unsafe.invokeCleaner
+     * on Java 9 and later, the buffer's cleaner on Java 8. Elsewhere, Android
+     * included, this does nothing and the collector frees them.
+     */
+    private static void free(ByteBuffer[] buffers) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                invokeCleaner = null;
+            }
+            if (invokeCleaner != null) {
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                Object unsafe = theUnsafe.get(null);
+                for (ByteBuffer b : buffers) {
+                    if (b != null) {
+                        invokeCleaner.invoke(unsafe, b);
+                    }
+                }
+                return;
+            }
+            for (ByteBuffer b : buffers) {
+                if (b != null) {
+                    Method cleaner = b.getClass().getMethod("cleaner");
+                    cleaner.setAccessible(true);
+                    Object c = cleaner.invoke(b);
+                    if (c != null) {
+                        c.getClass().getMethod("clean").invoke(c);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // No access to the cleaner, leave the buffers to the collector.
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Maths;
+
+import java.io.Serializable;
+
+public class EigenvalueDecomposition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int n;
+    private double[] d, e;
+
+    /**
+     * Eigenvectors, one per row of Z, so the QL rotations combine two
+     * contiguous rows instead of two strided columns.
+     */
+    private double[][] Z;
+
+    /**
+     * Eigenvalue Decomposition of a symmetric matrix, A = V*D*V'.
+     * Structure to access D and V.
+     * <p/>
+     * Householder reduction to tridiagonal form followed by the implicit QL
+     * method (the EISPACK routines tred2 and tql2), O(n^3) time and O(n^2)
+     * memory. The eigenvalues are real and sorted in ascending order, V is
+     * orthogonal. For a few eigenpairs of a large matrix see
+     * {@link com.example.cs_c_matrix_calc.matrix.iterative.LanczosEigenSolver}.
+     * <p/>
+     * Symmetry is checked exactly, element for element. A product such as
+     * B'*B is not guaranteed to be bitwise symmetric when it is computed by
+     * the blocked kernels; symmetrize it first, e.g. as (C + C')/2.
+     *
+     * @param A Symmetric matrix, A(i, j) == A(j, i) exactly
+     * @throws IllegalArgumentException Matrix must be symmetric.
+     */
+    public EigenvalueDecomposition(Matrix A) {
+        n = A.rows();
+        if (A.columns() != n || !isSymmetric(A)) {
+            throw new IllegalArgumentException("Matrix must be symmetric.");
+        }
+        d = new double[n];
+        e = new double[n];
+        if (n == 0) {
+            Z = new double[0][0];
+            return;
+        }
+        double[][] V = A.matrix();
+        tred2(V);
+        Z = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < n; k++) {
+                Z[i][k] = V[k][i];
+            }
+        }
+        tql2();
+    }
+
+    /**
+     * @return true if A(i, j) == A(j, i) for all i, j, with no tolerance.
+     */
+    private static boolean isSymmetric(Matrix A) {
+        double[] a = A.data();
+        int off = A.offset(), ld = A.ld();
+        for (int i = 0; i < A.rows(); i++) {
+            for (int j = 0; j < i; j++) {
+                if (a[off + i * ld + j] != a[off + j * ld + i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Symmetric Householder reduction to tridiagonal form, V holds the
+     * accumulated transformations on return.
+     */
+    private void tred2(double[][] V) {
+        for (int j = 0; j < n; j++) {
+            d[j] = V[n - 1][j];
+        }
+
+        for (int i = n - 1; i > 0; i--) {
+            // Scale to avoid under/overflow.
+            double scale = 0.0;
+            double h = 0.0;
+            for (int k = 0; k < i; k++) {
+                scale = scale + Math.abs(d[k]);
+            }
+            if (scale == 0.0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = V[i - 1][j];
+                    V[i][j] = 0.0;
+                    V[j][i] = 0.0;
+                }
+            } else {
+                // Generate Householder vector.
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+                double f = d[i - 1];
+                double g = Math.sqrt(h);
+                if (f > 0) {
+                    g = -g;
+                }
+                e[i] = scale * g;
+                h = h - f * g;
+                d[i - 1] = f - g;
+                for (int j = 0; j < i; j++) {
+                    e[j] = 0.0;
+                }
+
+                // Apply similarity transformation to remaining columns.
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    V[j][i] = f;
+                    g = e[j] + V[j][j] * f;
+                    for (int k = j + 1; k <= i - 1; k++) {
+                        g += V[k][j] * d[k];
+                        e[k] += V[k][j] * f;
+                    }
+                    e[j] = g;
+                }
+                f = 0.0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+                double hh = f / (h + h);
+                for (int j = 0; j < i; j++) {
+                    e[j] -= hh * d[j];
+                }
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k <= i - 1; k++) {
+                        V[k][j] -= (f * e[k] + g * d[k]);
+                    }
+                    d[j] = V[i - 1][j];
+                    V[i][j] = 0.0;
+                }
+            }
+            d[i] = h;
+        }
+
+        // Accumulate transformations.
+        for (int i = 0; i < n - 1; i++) {
+            V[n - 1][i] = V[i][i];
+            V[i][i] = 1.0;
+            double h = d[i + 1];
+            if (h != 0.0) {
+                for (int k = 0; k <= i; k++) {
+                    d[k] = V[k][i + 1] / h;
+                }
+                for (int j = 0; j <= i; j++) {
+                    double g = 0.0;
+                    for (int k = 0; k <= i; k++) {
+                        g += V[k][i + 1] * V[k][j];
+                    }
+                    for (int k = 0; k <= i; k++) {
+                        V[k][j] -= g * d[k];
+                    }
+                }
+            }
+            for (int k = 0; k <= i; k++) {
+                V[k][i + 1] = 0.0;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = V[n - 1][j];
+            V[n - 1][j] = 0.0;
+        }
+        V[n - 1][n - 1] = 1.0;
+        e[0] = 0.0;
+    }
+
+    /**
+     * Symmetric tridiagonal QL algorithm, rotating the rows of Z.
+     */
+    private void tql2() {
+        for (int i = 1; i < n; i++) {
+            e[i - 1] = e[i];
+        }
+        e[n - 1] = 0.0;
+
+        double f = 0.0;
+        double tst1 = 0.0;
+        double eps = Math.pow(2.0, -52.0);
+        for (int l = 0; l < n; l++) {
+
+            // Find small subdiagonal element.
+            tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n - 1 && Math.abs(e[m]) > eps * tst1) {
+                m++;
+            }
+
+            // If m == l, d[l] is an eigenvalue, otherwise iterate.
+            if (m > l) {
+                do {
+                    // Compute implicit shift.
+                    double g = d[l];
+                    double p = (d[l + 1] - g) / (2.0 * e[l]);
+                    double r = Maths.hypot(p, 1.0);
+                    if (p < 0) {
+                        r = -r;
+                    }
+                    d[l] = e[l] / (p + r);
+                    d[l + 1] = e[l] * (p + r);
+                    double dl1 = d[l + 1];
+                    double h = g - d[l];
+                    for (int i = l + 2; i < n; i++) {
+                        d[i] -= h;
+                    }
+                    f = f + h;
+
+                    // Implicit QL transformation.
+                    p = d[m];
+                    double c = 1.0;
+                    double c2 = c;
+                    double c3 = c;
+                    double el1 = e[l + 1];
+                    double s = 0.0;
+                    double s2 = 0.0;
+                    for (int i = m - 1; i >= l; i--) {
+                        c3 = c2;
+                        c2 = c;
+                        s2 = s;
+                        g = c * e[i];
+                        h = c * p;
+                        r = Maths.hypot(p, e[i]);
+                        e[i + 1] = s * r;
+                        s = e[i] / r;
+                        c = p / r;
+                        p = c * d[i] - s * g;
+                        d[i + 1] = h + s * (c * g + s * d[i]);
+
+                        // Accumulate transformation.
+                        double[] zi = Z[i], zi1 = Z[i + 1];
+                        for (int k = 0; k < n; k++) {
+                            h = zi1[k];
+                            zi1[k] = s * zi[k] + c * h;
+                            zi[k] = c * zi[k] - s * h;
+                        }
+                    }
+                    p = -s * s2 * c3 * el1 * e[l] / dl1;
+                    e[l] = s * p;
+                    d[l] = c * p;
+
+                    // Check for convergence.
+                } while (Math.abs(e[l]) > eps * tst1);
+            }
+            d[l] = d[l] + f;
+            e[l] = 0.0;
+        }
+
+        // Sort eigenvalues and corresponding vectors.
+        for (int i = 0; i < n - 1; i++) {
+            int k = i;
+            double p = d[i];
+            for (int j = i + 1; j < n; j++) {
+                if (d[j] < p) {
+                    k = j;
+                    p = d[j];
+                }
+            }
+            if (k != i) {
+                d[k] = d[i];
+                d[i] = p;
+                double[] t = Z[i];
+                Z[i] = Z[k];
+                Z[k] = t;
+            }
+        }
+    }
+
+    /**
+     * Return the eigenvector matrix
+     *
+     * @return V, eigenvector i in column i
+     */
+    public Matrix getV() {
+        Matrix X = new Matrix(n, n);
+        double[] x = X.data();
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                x[i * n + j] = Z[j][i];
+            }
+        }
+        return X;
+    }
+
+    /**
+     * Return the eigenvalues in ascending order
+     *
+     * @return diag(D)
+     */
+    public double[] getRealEigenvalues() {
+        return d.clone();
+    }
+
+    /**
+     * Return the diagonal eigenvalue matrix
+     *
+     * @return D
+     */
+    public Matrix getD() {
+        Matrix X = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            X.data()[i * n + i] = d[i];
+        }
+        return X;
+    }
+}
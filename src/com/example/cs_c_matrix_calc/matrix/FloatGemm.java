@@ -0,0 +1,237 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Parallel;
+
+/**
+ * Single precision counterpart of {@link Gemm}, C += alpha * A * B on float arrays.
+ * <p/>
+ * The block sizes and the parallel split are those of {@link Gemm}, so the
+ * blocks take half the cache and leave more room for C. Only the loops that
+ * touch the elements are repeated for float: Java cannot share them across
+ * primitive types without boxing or a call per element.
+ */
+final class FloatGemm {
+
+    private static final int MR = Gemm.MR, NR = Gemm.NR;
+    private static final int MC = Gemm.MC, KC = Gemm.KC, NC = Gemm.NC;
+    private static final long SMALL = Gemm.SMALL;
+
+    /**
+     * Per-thread packing buffers, {packedA, packedB, edge tile}, grown on demand
+     * and reused so steady-state multiplications do not allocate.
+     */
+    private static final ThreadLocal<float[][]> BUFFERS = new ThreadLocal<float[][]>() {
+        @Override
+        protected float[][] initialValue() {
+            return new float[][]{new float[0], new float[0], new float[MR * NR]};
+        }
+    };
+
+    private FloatGemm() {
+    }
+
+    /**
+     * C += alpha * A * B on row-major arrays, element (i, j) of X at x[xOff + i * ldx + j].
+     * <p/>
+     * Large products are split into independent row blocks of C (or column
+     * blocks when C is wide) and run on the {@link Parallel} pool.
+     *
+     * @param m Number of rows of A and C.
+     * @param n Number of columns of B and C.
+     * @param k Number of columns of A and rows of B.
+     * @param alpha Scale applied to the product.
+     */
+    static void multiply(final int m, final int n, final int k, final float alpha,
+                         final float[] a, final int aOff, final int lda,
+                         final float[] b, final int bOff, final int ldb,
+                         final float[] c, final int cOff, final int ldc) {
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+        if (!Parallel.shouldSplit((long) m * n * k)) {
+            multiplyBlock(m, n, k, alpha, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        } else {
+            Gemm.split(m, n, k, new Gemm.BlockTask() {
+                public void run(int row, int rows, int column, int columns) {
+                    multiplyBlock(rows, columns, k, alpha, a, aOff + row * lda, lda, b, bOff + column, ldb,
+                            c, cOff + row * ldc + column, ldc);
+                }
+            });
+        }
+    }
+
+    /**
+     * C += alpha * A * B on the calling thread.
+     */
+    private static void multiplyBlock(int m, int n, int k, float alpha,
+                                      float[] a, int aOff, int lda,
+                                      float[] b, int bOff, int ldb,
+                                      float[] c, int cOff, int ldc) {
+        if ((long) m * n * k <= SMALL) {
+            naive(m, n, k, alpha, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+            return;
+        }
+        float[][] buffers = BUFFERS.get();
+        int sizeA = Gemm.roundUp(Math.min(m, MC), MR) * Math.min(k, KC);
+        int sizeB = Gemm.roundUp(Math.min(n, NC), NR) * Math.min(k, KC);
+        if (buffers[0].length < sizeA) {
+            buffers[0] = new float[sizeA];
+        }
+        if (buffers[1].length < sizeB) {
+            buffers[1] = new float[sizeB];
+        }
+        float[] packedA = buffers[0];
+        float[] packedB = buffers[1];
+        float[] edge = buffers[2];
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(b, bOff + pc * ldb + jc, ldb, kc, nc, packedB);
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    packA(a, aOff + ic * lda + pc, lda, mc, kc, packedA);
+                    for (int jr = 0; jr < nc; jr += NR) {
+                        for (int ir = 0; ir < mc; ir += MR) {
+                            microKernel(kc, alpha, packedA, ir * kc, packedB, jr * kc,
+                                    c, cOff + (ic + ir) * ldc + jc + jr, ldc,
+                                    Math.min(MR, mc - ir), Math.min(NR, nc - jr), edge);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Row-oriented product for operands that fit in cache anyway.
+     */
+    private static void naive(int m, int n, int k, float alpha,
+                              float[] a, int aOff, int lda,
+                              float[] b, int bOff, int ldb,
+                              float[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            int ai = aOff + i * lda;
+            int ci = cOff + i * ldc;
+            for (int p = 0; p < k; p++) {
+                float aip = alpha * a[ai + p];
+                int bp = bOff + p * ldb;
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] += aip * b[bp + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack an mc-by-kc block of A starting at a[off] into micro-panels of MR
+     * rows, stored column by column and zero padded to a multiple of MR rows.
+     */
+    private static void packA(float[] a, int off, int lda, int mc, int kc, float[] packed) {
+        int idx = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            int rows = Math.min(MR, mc - ir);
+            int base = off + ir * lda;
+            for (int p = 0; p < kc; p++) {
+                for (int ii = 0; ii < MR; ii++) {
+                    packed[idx++] = ii < rows ? a[base + ii * lda + p] : 0.0f;
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack a kc-by-nc panel of B starting at b[off] into micro-panels of NR
+     * columns, stored row by row and zero padded to a multiple of NR columns.
+     */
+    private static void packB(float[] b, int off, int ldb, int kc, int nc, float[] packed) {
+        int idx = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            int cols = Math.min(NR, nc - jr);
+            for (int p = 0; p < kc; p++) {
+                int bp = off + p * ldb + jr;
+                for (int jj = 0; jj < NR; jj++) {
+                    packed[idx++] = jj < cols ? b[bp + jj] : 0.0f;
+                }
+            }
+        }
+    }
+
+    /**
+     * C(0:rows-1, 0:cols-1) += alpha * packedA micro-panel * packedB micro-panel, C starting at c[cOff].
+     * Edge tiles are staged in t.
+     */
+    private static void microKernel(int kc, float alpha, float[] a, int aOff, float[] b, int bOff,
+                                    float[] c, int cOff, int ldc, int rows, int cols, float[] t) {
+        float c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        float c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        float c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        float c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int p = 0; p < kc; p++) {
+            float a0 = a[aOff], a1 = a[aOff + 1], a2 = a[aOff + 2], a3 = a[aOff + 3];
+            float b0 = b[bOff], b1 = b[bOff + 1], b2 = b[bOff + 2], b3 = b[bOff + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+            aOff += MR;
+            bOff += NR;
+        }
+        if (rows == MR && cols == NR) {
+            int c0 = cOff, c1 = c0 + ldc, c2 = c1 + ldc, c3 = c2 + ldc;
+            c[c0] += alpha * c00;
+            c[c0 + 1] += alpha * c01;
+            c[c0 + 2] += alpha * c02;
+            c[c0 + 3] += alpha * c03;
+            c[c1] += alpha * c10;
+            c[c1 + 1] += alpha * c11;
+            c[c1 + 2] += alpha * c12;
+            c[c1 + 3] += alpha * c13;
+            c[c2] += alpha * c20;
+            c[c2 + 1] += alpha * c21;
+            c[c2 + 2] += alpha * c22;
+            c[c2 + 3] += alpha * c23;
+            c[c3] += alpha * c30;
+            c[c3 + 1] += alpha * c31;
+            c[c3 + 2] += alpha * c32;
+            c[c3 + 3] += alpha * c33;
+            return;
+        }
+        // Edge tile: only part of the 4x4 block lies inside C.
+        t[0] = c00;
+        t[1] = c01;
+        t[2] = c02;
+        t[3] = c03;
+        t[4] = c10;
+        t[5] = c11;
+        t[6] = c12;
+        t[7] = c13;
+        t[8] = c20;
+        t[9] = c21;
+        t[10] = c22;
+        t[11] = c23;
+        t[12] = c30;
+        t[13] = c31;
+        t[14] = c32;
+        t[15] = c33;
+        for (int ii = 0; ii < rows; ii++) {
+            int ci = cOff + ii * ldc;
+            for (int jj = 0; jj < cols; jj++) {
+                c[ci + jj] += alpha * t[ii * NR + jj];
+            }
+        }
+    }
+}
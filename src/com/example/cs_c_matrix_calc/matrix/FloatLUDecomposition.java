@@ -0,0 +1,194 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import java.io.Serializable;
+
+public class FloatLUDecomposition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final float EPS = 1e-6f;
+    private FloatMatrix LU;
+    private int rows, columns, pivotSign; // pivot sign
+    private int[] pivot; // Internal storage of pivot vector.
+
+    /**
+     * LU Decomposition in single precision
+     * Structure to access L, U and pivot.
+     * <p/>
+     * Right-looking elimination with partial pivoting; each step updates the
+     * trailing rows with contiguous float axpys.
+     *
+     * @param A Rectangular matrix
+     */
+    public FloatLUDecomposition(FloatMatrix A) {
+        LU = A.copy();
+        rows = A.rows();
+        columns = A.columns();
+        pivot = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            pivot[i] = i;
+        }
+        pivotSign = 1;
+        float[] lu = LU.data();
+
+        int steps = Math.min(rows, columns);
+        for (int j = 0; j < steps; j++) {
+            int p = j;
+            float max = Math.abs(lu[j * columns + j]);
+            for (int i = j + 1; i < rows; i++) {
+                float v = Math.abs(lu[i * columns + j]);
+                if (v > max) {
+                    max = v;
+                    p = i;
+                }
+            }
+            if (p != j) {
+                int rowP = p * columns, rowJ = j * columns;
+                for (int k = 0; k < columns; k++) {
+                    float t = lu[rowP + k];
+                    lu[rowP + k] = lu[rowJ + k];
+                    lu[rowJ + k] = t;
+                }
+                int k = pivot[p];
+                pivot[p] = pivot[j];
+                pivot[j] = k;
+                pivotSign = -pivotSign;
+            }
+
+            int rowJ = j * columns;
+            float ljj = lu[rowJ + j];
+            if (ljj != 0.0f) {
+                for (int i = j + 1; i < rows; i++) {
+                    int rowI = i * columns;
+                    float lij = lu[rowI + j] /= ljj;
+                    if (lij == 0.0f) {
+                        continue;
+                    }
+                    for (int k = j + 1; k < columns; k++) {
+                        lu[rowI + k] -= lij * lu[rowJ + k];
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean isNonSingular() {
+        float[] lu = LU.data();
+        for (int j = 0; j < columns; j++) {
+            if (Math.abs(lu[j * columns + j]) < EPS)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return lower triangular matrix
+     *
+     * @return L
+     */
+    public FloatMatrix getL() {
+        FloatMatrix L = new FloatMatrix(rows, columns);
+        float[] matrixL = L.data();
+        float[] lu = LU.data();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (i > j) {
+                    matrixL[i * columns + j] = lu[i * columns + j];
+                } else if (i == j) {
+                    matrixL[i * columns + j] = 1.0f;
+                }
+            }
+        }
+        return L;
+    }
+
+    /**
+     * Return upper triangular factor
+     *
+     * @return U
+     */
+    public FloatMatrix getU() {
+        FloatMatrix U = new FloatMatrix(columns, columns);
+        float[] matrixU = U.data();
+        float[] lu = LU.data();
+        for (int i = 0; i < columns; i++) {
+            for (int j = i; j < columns; j++) {
+                matrixU[i * columns + j] = lu[i * columns + j];
+            }
+        }
+        return U;
+    }
+
+    /**
+     * Determinant, the product is accumulated in double.
+     *
+     * @return det(A)
+     * @throws IllegalArgumentException Matrix must be square
+     */
+    public double det() {
+        if (rows != columns) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        float[] lu = LU.data();
+        double d = (double) pivotSign;
+        for (int j = 0; j < columns; j++) {
+            d *= lu[j * columns + j];
+        }
+        return d;
+    }
+
+    /**
+     * Solve A*X = B
+     *
+     * @param B A FloatMatrix with as many rows as A and any number of columns.
+     * @return X so that L*U*X = B(pivot,:)
+     * @throws IllegalArgumentException Matrix row dimensions must agree.
+     * @throws RuntimeException         Matrix is singular.
+     */
+    public FloatMatrix solve(FloatMatrix B) {
+        if (B.rows() != rows) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        if (!this.isNonSingular()) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+
+        // Copy right hand side with pivoting
+        int nx = B.columns();
+        FloatMatrix Xmat = new FloatMatrix(rows, nx);
+        float[] X = Xmat.data();
+        float[] b = B.data();
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(b, pivot[i] * nx, X, i * nx, nx);
+        }
+        float[] lu = LU.data();
+
+        // Solve L*Y = B(pivot,:)
+        for (int k = 0; k < columns; k++) {
+            int rowK = k * nx;
+            for (int i = k + 1; i < columns; i++) {
+                float lik = lu[i * columns + k];
+                int rowI = i * nx;
+                for (int j = 0; j < nx; j++) {
+                    X[rowI + j] -= X[rowK + j] * lik;
+                }
+            }
+        }
+        // Solve U*X = Y;
+        for (int k = columns - 1; k >= 0; k--) {
+            int rowK = k * nx;
+            float ukk = lu[k * columns + k];
+            for (int j = 0; j < nx; j++) {
+                X[rowK + j] /= ukk;
+            }
+            for (int i = 0; i < k; i++) {
+                float uik = lu[i * columns + k];
+                int rowI = i * nx;
+                for (int j = 0; j < nx; j++) {
+                    X[rowI + j] -= X[rowK + j] * uik;
+                }
+            }
+        }
+        return Xmat;
+    }
+}
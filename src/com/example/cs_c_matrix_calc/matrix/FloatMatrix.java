@@ -0,0 +1,389 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import java.io.Serializable;
+
+/**
+ * Dense single precision matrix stored row-major in a single float[].
+ * <p/>
+ * Half the memory and bandwidth of {@link Matrix} for workloads that do not
+ * need double precision. Element (i, j) lives at data[i * columns + j].
+ * Conversions are explicit: {@link #narrow(Matrix)} rounds a double matrix to
+ * float and {@link #widen()} converts back exactly.
+ * <p/>
+ * The LU and QR factorizations used by {@link #solve}, {@link #inverse} and
+ * {@link #det} are cached until the matrix is modified; writes through
+ * {@link #data()} must be followed by {@link #invalidate()}.
+ */
+public class FloatMatrix implements RealMatrix, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private float[] data;
+    private int rows, columns;
+
+    private transient FloatLUDecomposition lu;
+    private transient FloatQRDecomposition qr;
+
+    /**
+     * Construct an rows-by-columns matrix of zeros.
+     *
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     */
+    public FloatMatrix(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        data = new float[rows * columns];
+    }
+
+    /**
+     * Wrap a row-major array without copying.
+     *
+     * @param data    Row-major elements, at least rows * columns long.
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     * @throws IllegalArgumentException Array is too short.
+     */
+    public FloatMatrix(float[] data, int rows, int columns) {
+        if (data.length < rows * columns) {
+            throw new IllegalArgumentException("Array is shorter than rows * columns.");
+        }
+        this.data = data;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Narrowing conversion, each element rounded to the nearest float.
+     *
+     * @param A double precision matrix
+     * @return new single precision matrix
+     */
+    public static FloatMatrix narrow(Matrix A) {
+        FloatMatrix X = new FloatMatrix(A.rows(), A.columns());
+        double[] a = A.data();
+        for (int i = 0; i < X.rows; i++) {
+            int ai = A.offset() + i * A.ld();
+            int xi = i * X.columns;
+            for (int j = 0; j < X.columns; j++) {
+                X.data[xi + j] = (float) a[ai + j];
+            }
+        }
+        return X;
+    }
+
+    /**
+     * Widening conversion, exact.
+     *
+     * @return new double precision matrix
+     */
+    public Matrix widen() {
+        Matrix X = new Matrix(rows, columns);
+        double[] x = X.data();
+        for (int i = 0; i < rows * columns; i++) {
+            x[i] = data[i];
+        }
+        return X;
+    }
+
+    /**
+     * Access the internal row-major array.
+     * Call {@link #invalidate()} after writing to it.
+     *
+     * @return Pointer to the backing array.
+     */
+    public float[] data() {
+        return data;
+    }
+
+    /**
+     * Make a deep copy of a matrix
+     */
+    public FloatMatrix copy() {
+        FloatMatrix copy = new FloatMatrix(rows, columns);
+        System.arraycopy(data, 0, copy.data, 0, rows * columns);
+        return copy;
+    }
+
+    /**
+     * Clone the FloatMatrix object.
+     */
+    public Object clone() {
+        return this.copy();
+    }
+
+    /**
+     * Get row dimension.
+     *
+     * @return rows, the number of rows.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Get column dimension.
+     *
+     * @return columns, the number of columns.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * Get a single element.
+     *
+     * @param i Row index.
+     * @param j Column index.
+     * @return matrix(i, j)
+     * @throws ArrayIndexOutOfBoundsException
+     */
+    public double get(int i, int j) {
+        checkIndex(i, j);
+        return data[i * columns + j];
+    }
+
+    /**
+     * Set a single element.
+     *
+     * @param i Row index.
+     * @param j Column index.
+     * @param s data(i,j).
+     * @throws ArrayIndexOutOfBoundsException
+     */
+    public void set(int i, int j, float s) {
+        checkIndex(i, j);
+        invalidate();
+        data[i * columns + j] = s;
+    }
+
+    /**
+     * Drop the cached factorizations.
+     */
+    public void invalidate() {
+        lu = null;
+        qr = null;
+    }
+
+    /**
+     * LU factorization of this matrix, cached until the next modification.
+     *
+     * @return LU decomposition of matrix
+     */
+    public FloatLUDecomposition lu() {
+        FloatLUDecomposition f = lu;
+        if (f == null) {
+            lu = f = new FloatLUDecomposition(this);
+        }
+        return f;
+    }
+
+    /**
+     * QR factorization of this matrix, cached until the next modification.
+     *
+     * @return QR decomposition of matrix
+     */
+    public FloatQRDecomposition qr() {
+        FloatQRDecomposition f = qr;
+        if (f == null) {
+            qr = f = new FloatQRDecomposition(this);
+        }
+        return f;
+    }
+
+    /**
+     * Matrix transpose.
+     *
+     * @return matrix'
+     */
+    public FloatMatrix transpose() {
+        FloatMatrix X = new FloatMatrix(columns, rows);
+        for (int i = 0; i < rows; i++) {
+            int a = i * columns;
+            for (int j = 0; j < columns; j++) {
+                X.data[j * rows + i] = data[a + j];
+            }
+        }
+        return X;
+    }
+
+    /**
+     * Unary minus
+     *
+     * @return -matrix
+     */
+    public FloatMatrix uminus() {
+        FloatMatrix X = new FloatMatrix(rows, columns);
+        for (int i = 0; i < rows * columns; i++) {
+            X.data[i] = -data[i];
+        }
+        return X;
+    }
+
+    /**
+     * C = matrix + other
+     *
+     * @param other another matrix
+     * @return matrix + other
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     */
+    public FloatMatrix plus(FloatMatrix other) {
+        checkDimensions(other);
+        FloatMatrix X = new FloatMatrix(rows, columns);
+        float[] b = other.data;
+        for (int i = 0; i < rows * columns; i++) {
+            X.data[i] = data[i] + b[i];
+        }
+        return X;
+    }
+
+    /**
+     * C = matrix - other
+     *
+     * @param other another matrix
+     * @return matrix - other
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     */
+    public FloatMatrix minus(FloatMatrix other) {
+        checkDimensions(other);
+        FloatMatrix X = new FloatMatrix(rows, columns);
+        float[] b = other.data;
+        for (int i = 0; i < rows * columns; i++) {
+            X.data[i] = data[i] - b[i];
+        }
+        return X;
+    }
+
+    /**
+     * Linear algebraic matrix multiplication, matrix * other
+     * <p/>
+     * Runs on {@link FloatGemm}, the float version of the packed kernel behind
+     * {@link Matrix#mult(Matrix)}, including its parallel split.
+     *
+     * @param other another matrix
+     * @return Matrix product, matrix * other
+     * @throws IllegalArgumentException Matrix inner dimensions must agree.
+     */
+    public FloatMatrix mult(FloatMatrix other) {
+        if (other.rows != columns) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        FloatMatrix X = new FloatMatrix(rows, other.columns);
+        FloatGemm.multiply(rows, other.columns, columns, 1.0f,
+                data, 0, columns, other.data, 0, other.columns, X.data, 0, other.columns);
+        return X;
+    }
+
+    /**
+     * Matrix-vector product in double precision, y = matrix * x
+     *
+     * @param x vector with as many elements as the matrix has columns
+     * @param y vector with as many elements as the matrix has rows, overwritten
+     */
+    public void mult(double[] x, double[] y) {
+        if (x.length < columns || y.length < rows) {
+            throw new IllegalArgumentException("Vector dimensions must agree.");
+        }
+        for (int i = 0; i < rows; i++) {
+            int a = i * columns;
+            double s = 0.0;
+            for (int j = 0; j < columns; j++) {
+                s += data[a + j] * x[j];
+            }
+            y[i] = s;
+        }
+    }
+
+    /**
+     * Product with a double precision matrix.
+     * <p/>
+     * This matrix is widened to double, exactly, and the product is computed
+     * and returned in double precision by {@link Matrix#mult(Matrix)}: it
+     * costs the double rate, not the float one, and is more accurate than
+     * {@code mult(FloatMatrix.narrow(other))}.
+     *
+     * @param other dense matrix with as many rows as this one has columns
+     * @return dense product, in double precision
+     */
+    public Matrix mult(Matrix other) {
+        return widen().mult(other);
+    }
+
+    /**
+     * @return the elements widened to a double precision matrix.
+     */
+    public Matrix toDense() {
+        return widen();
+    }
+
+    /**
+     * Solve matrix*X = other
+     *
+     * @param other right hand side
+     * @return solution if matrix is square, least squares solution otherwise
+     */
+    public FloatMatrix solve(FloatMatrix other) {
+        return (rows == columns ? lu().solve(other) : qr().solve(other));
+    }
+
+    /**
+     * Matrix inverse or pseudoinverse
+     *
+     * @return inverse(matrix) if matrix is square, pseudoinverse otherwise.
+     */
+    public FloatMatrix inverse() {
+        return solve(identity(rows, rows));
+    }
+
+    /**
+     * Matrix determinant, accumulated in double so it does not overflow as
+     * early as the float elements would.
+     *
+     * @return determinant
+     */
+    public double det() {
+        return lu().det();
+    }
+
+    /**
+     * Generate identity matrix
+     *
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     * @return An rows-by-columns matrix with ones on the diagonal and zeros elsewhere.
+     */
+    public static FloatMatrix identity(int rows, int columns) {
+        FloatMatrix A = new FloatMatrix(rows, columns);
+        for (int i = 0; i < Math.min(rows, columns); i++) {
+            A.data[i * columns + i] = 1.0f;
+        }
+        return A;
+    }
+
+    /**
+     * Generate matrix with random elements
+     *
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     * @return An rows-by-columns matrix with uniformly distributed random elements.
+     */
+    public static FloatMatrix random(int rows, int columns) {
+        FloatMatrix A = new FloatMatrix(rows, columns);
+        for (int i = 0; i < A.data.length; i++) {
+            A.data[i] = (float) Math.random();
+        }
+        return A;
+    }
+
+    private void checkIndex(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= columns) {
+            throw new ArrayIndexOutOfBoundsException("Matrix index (" + i + ", " + j + ")");
+        }
+    }
+
+    private void checkDimensions(FloatMatrix other) {
+        if (other.rows != rows || other.columns != columns) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Maths;
+
+import java.io.Serializable;
+
+public class FloatQRDecomposition implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private FloatMatrix QR;
+    private int rows, columns;
+
+    /**
+     * Array for internal storage of diagonal of R.
+     *
+     * @serial diagonal of R.
+     */
+    private float[] Rdiag;
+
+    /**
+     * QR Decomposition in single precision, computed by Householder reflections.
+     * Structure to access R and the Householder vectors.
+     * <p/>
+     * Each reflector is applied to the remaining columns a row at a time, so
+     * the inner loops run along contiguous float rows.
+     *
+     * @param A Rectangular matrix
+     */
+    public FloatQRDecomposition(FloatMatrix A) {
+        // Initialize.
+        QR = A.copy();
+        rows = A.rows();
+        columns = A.columns();
+        Rdiag = new float[columns];
+        float[] qr = QR.data();
+        float[] w = new float[columns];
+
+        // Main loop.
+        for (int k = 0; k < columns; k++) {
+            // Compute 2-norm of k-th column without under/overflow.
+            double nrm = 0;
+            for (int i = k; i < rows; i++) {
+                nrm = Maths.hypot(nrm, qr[i * columns + k]);
+            }
+
+            if (nrm != 0.0) {
+                // Form k-th Householder vector.
+                if (qr[k * columns + k] < 0.0f) {
+                    nrm = -nrm;
+                }
+                float s = (float) nrm;
+                for (int i = k; i < rows; i++) {
+                    qr[i * columns + k] /= s;
+                }
+                qr[k * columns + k] += 1.0f;
+
+                // Apply transformation to remaining columns.
+                int nc = columns - k - 1;
+                for (int j = 0; j < nc; j++) {
+                    w[j] = 0.0f;
+                }
+                for (int i = k; i < rows; i++) {
+                    int rowI = i * columns;
+                    float vik = qr[rowI + k];
+                    for (int j = 0; j < nc; j++) {
+                        w[j] += vik * qr[rowI + k + 1 + j];
+                    }
+                }
+                float vkk = qr[k * columns + k];
+                for (int j = 0; j < nc; j++) {
+                    w[j] = -w[j] / vkk;
+                }
+                for (int i = k; i < rows; i++) {
+                    int rowI = i * columns;
+                    float vik = qr[rowI + k];
+                    for (int j = 0; j < nc; j++) {
+                        qr[rowI + k + 1 + j] += w[j] * vik;
+                    }
+                }
+            }
+            Rdiag[k] = (float) -nrm;
+        }
+    }
+
+    /**
+     * Is the matrix full rank?
+     *
+     * @return true if R, and hence A, has full rank.
+     */
+    public boolean isFullRank() {
+        for (int j = 0; j < columns; j++) {
+            if (Rdiag[j] == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Least squares solution of A*X = B
+     *
+     * @param B A FloatMatrix with as many rows as A and any number of columns.
+     * @return X that minimizes the two norm of Q*R*X-B.
+     * @throws IllegalArgumentException Matrix row dimensions must agree.
+     * @throws RuntimeException         Matrix is rank deficient.
+     */
+    public FloatMatrix solve(FloatMatrix B) {
+        if (B.rows() != rows) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        if (!this.isFullRank()) {
+            throw new RuntimeException("Matrix is rank deficient.");
+        }
+
+        // Copy right hand side
+        int nx = B.columns();
+        FloatMatrix Y = B.copy();
+        float[] X = Y.data();
+        float[] qr = QR.data();
+        float[] w = new float[nx];
+
+        // Compute Y = transpose(Q)*B
+        for (int k = 0; k < columns; k++) {
+            for (int j = 0; j < nx; j++) {
+                w[j] = 0.0f;
+            }
+            for (int i = k; i < rows; i++) {
+                float vik = qr[i * columns + k];
+                int rowI = i * nx;
+                for (int j = 0; j < nx; j++) {
+                    w[j] += vik * X[rowI + j];
+                }
+            }
+            float vkk = qr[k * columns + k];
+            for (int j = 0; j < nx; j++) {
+                w[j] = -w[j] / vkk;
+            }
+            for (int i = k; i < rows; i++) {
+                float vik = qr[i * columns + k];
+                int rowI = i * nx;
+                for (int j = 0; j < nx; j++) {
+                    X[rowI + j] += w[j] * vik;
+                }
+            }
+        }
+        // Solve R*X = Y;
+        for (int k = columns - 1; k >= 0; k--) {
+            int rowK = k * nx;
+            for (int j = 0; j < nx; j++) {
+                X[rowK + j] /= Rdiag[k];
+            }
+            for (int i = 0; i < k; i++) {
+                float rik = qr[i * columns + k];
+                int rowI = i * nx;
+                for (int j = 0; j < nx; j++) {
+                    X[rowI + j] -= X[rowK + j] * rik;
+                }
+            }
+        }
+        FloatMatrix R = new FloatMatrix(columns, nx);
+        System.arraycopy(X, 0, R.data(), 0, columns * nx);
+        return R;
+    }
+}
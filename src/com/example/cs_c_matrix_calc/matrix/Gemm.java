@@ -0,0 +1,262 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Parallel;
+
+/**
+ * Cache-blocked general matrix multiplication, C += alpha * A * B.
+ * <p/>
+ * Blocks of A and B are packed into contiguous buffers sized for the L2 and L1
+ * caches, and a 4x4 register-blocked micro-kernel accumulates each tile of C.
+ * Small products skip the packing and use a plain row-oriented loop.
+ */
+final class Gemm {
+
+    /**
+     * Micro-kernel tile: MR rows of A by NR columns of B.
+     */
+    static final int MR = 4, NR = 4;
+
+    /**
+     * Block of A (MC x KC) kept in L2, micro-panel of B (KC x NR) kept in L1,
+     * panel of B (KC x NC) kept in the last level cache.
+     */
+    static final int MC = 128, KC = 256, NC = 2048;
+
+    /**
+     * Below this number of multiply-adds packing costs more than it saves.
+     */
+    static final long SMALL = 32L * 32L * 32L;
+
+    /**
+     * Product of the rows from row to row + rows of A with the columns from
+     * column to column + columns of B, into the same part of C.
+     */
+    interface BlockTask {
+        void run(int row, int rows, int column, int columns);
+    }
+
+    private Gemm() {
+    }
+
+    /**
+     * C += alpha * A * B on row-major arrays, element (i, j) of X at x[xOff + i * ldx + j].
+     * <p/>
+     * Large products are split into independent row blocks of C (or column
+     * blocks when C is wide) and run on the {@link Parallel} pool.
+     *
+     * @param m Number of rows of A and C.
+     * @param n Number of columns of B and C.
+     * @param k Number of columns of A and rows of B.
+     * @param alpha Scale applied to the product.
+     */
+    static void multiply(final int m, final int n, final int k, final double alpha,
+                         final double[] a, final int aOff, final int lda,
+                         final double[] b, final int bOff, final int ldb,
+                         final double[] c, final int cOff, final int ldc) {
+        if (m == 0 || n == 0 || k == 0) {
+            return;
+        }
+        if (!Parallel.shouldSplit((long) m * n * k)) {
+            multiplyBlock(m, n, k, alpha, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+        } else {
+            split(m, n, k, new BlockTask() {
+                public void run(int row, int rows, int column, int columns) {
+                    multiplyBlock(rows, columns, k, alpha, a, aOff + row * lda, lda, b, bOff + column, ldb,
+                            c, cOff + row * ldc + column, ldc);
+                }
+            });
+        }
+    }
+
+    /**
+     * Run a product too large for one thread on the {@link Parallel} pool,
+     * as independent row blocks of C, or column blocks when C is wide.
+     */
+    static void split(final int m, final int n, int k, final BlockTask task) {
+        if (m >= n) {
+            Parallel.forRange(0, m, (long) n * k, MC, new Parallel.RangeTask() {
+                public void run(int from, int to) {
+                    task.run(from, to - from, 0, n);
+                }
+            });
+        } else {
+            Parallel.forRange(0, n, (long) m * k, NR * 16, new Parallel.RangeTask() {
+                public void run(int from, int to) {
+                    task.run(0, m, from, to - from);
+                }
+            });
+        }
+    }
+
+    /**
+     * C += alpha * A * B on the calling thread.
+     */
+    private static void multiplyBlock(int m, int n, int k, double alpha,
+                                      double[] a, int aOff, int lda,
+                                      double[] b, int bOff, int ldb,
+                                      double[] c, int cOff, int ldc) {
+        if ((long) m * n * k <= SMALL) {
+            naive(m, n, k, alpha, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+            return;
+        }
+        // Packing buffers of this thread, reused so steady-state multiplications do not allocate.
+        Workspace ws = Workspace.local();
+        double[] packedA = ws.doubles(Workspace.GEMM_A, roundUp(Math.min(m, MC), MR) * Math.min(k, KC));
+        double[] packedB = ws.doubles(Workspace.GEMM_B, roundUp(Math.min(n, NC), NR) * Math.min(k, KC));
+        double[] edge = ws.doubles(Workspace.GEMM_EDGE, MR * NR);
+
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(b, bOff + pc * ldb + jc, ldb, kc, nc, packedB);
+                for (int ic = 0; ic < m; ic += MC) {
+                    int mc = Math.min(MC, m - ic);
+                    packA(a, aOff + ic * lda + pc, lda, mc, kc, packedA);
+                    for (int jr = 0; jr < nc; jr += NR) {
+                        for (int ir = 0; ir < mc; ir += MR) {
+                            microKernel(kc, alpha, packedA, ir * kc, packedB, jr * kc,
+                                    c, cOff + (ic + ir) * ldc + jc + jr, ldc,
+                                    Math.min(MR, mc - ir), Math.min(NR, nc - jr), edge);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Row-oriented product for operands that fit in cache anyway.
+     */
+    private static void naive(int m, int n, int k, double alpha,
+                              double[] a, int aOff, int lda,
+                              double[] b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            int ai = aOff + i * lda;
+            int ci = cOff + i * ldc;
+            for (int p = 0; p < k; p++) {
+                double aip = alpha * a[ai + p];
+                int bp = bOff + p * ldb;
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] += aip * b[bp + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack an mc-by-kc block of A starting at a[off] into micro-panels of MR
+     * rows, stored column by column and zero padded to a multiple of MR rows.
+     */
+    private static void packA(double[] a, int off, int lda, int mc, int kc, double[] packed) {
+        int idx = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            int rows = Math.min(MR, mc - ir);
+            int base = off + ir * lda;
+            for (int p = 0; p < kc; p++) {
+                for (int ii = 0; ii < MR; ii++) {
+                    packed[idx++] = ii < rows ? a[base + ii * lda + p] : 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack a kc-by-nc panel of B starting at b[off] into micro-panels of NR
+     * columns, stored row by row and zero padded to a multiple of NR columns.
+     */
+    private static void packB(double[] b, int off, int ldb, int kc, int nc, double[] packed) {
+        int idx = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            int cols = Math.min(NR, nc - jr);
+            for (int p = 0; p < kc; p++) {
+                int bp = off + p * ldb + jr;
+                for (int jj = 0; jj < NR; jj++) {
+                    packed[idx++] = jj < cols ? b[bp + jj] : 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * C(0:rows-1, 0:cols-1) += alpha * packedA micro-panel * packedB micro-panel, C starting at c[cOff].
+     * Edge tiles are staged in t.
+     */
+    private static void microKernel(int kc, double alpha, double[] a, int aOff, double[] b, int bOff,
+                                    double[] c, int cOff, int ldc, int rows, int cols, double[] t) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int p = 0; p < kc; p++) {
+            double a0 = a[aOff], a1 = a[aOff + 1], a2 = a[aOff + 2], a3 = a[aOff + 3];
+            double b0 = b[bOff], b1 = b[bOff + 1], b2 = b[bOff + 2], b3 = b[bOff + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+            aOff += MR;
+            bOff += NR;
+        }
+        if (rows == MR && cols == NR) {
+            int c0 = cOff, c1 = c0 + ldc, c2 = c1 + ldc, c3 = c2 + ldc;
+            c[c0] += alpha * c00;
+            c[c0 + 1] += alpha * c01;
+            c[c0 + 2] += alpha * c02;
+            c[c0 + 3] += alpha * c03;
+            c[c1] += alpha * c10;
+            c[c1 + 1] += alpha * c11;
+            c[c1 + 2] += alpha * c12;
+            c[c1 + 3] += alpha * c13;
+            c[c2] += alpha * c20;
+            c[c2 + 1] += alpha * c21;
+            c[c2 + 2] += alpha * c22;
+            c[c2 + 3] += alpha * c23;
+            c[c3] += alpha * c30;
+            c[c3 + 1] += alpha * c31;
+            c[c3 + 2] += alpha * c32;
+            c[c3 + 3] += alpha * c33;
+            return;
+        }
+        // Edge tile: only part of the 4x4 block lies inside C.
+        t[0] = c00;
+        t[1] = c01;
+        t[2] = c02;
+        t[3] = c03;
+        t[4] = c10;
+        t[5] = c11;
+        t[6] = c12;
+        t[7] = c13;
+        t[8] = c20;
+        t[9] = c21;
+        t[10] = c22;
+        t[11] = c23;
+        t[12] = c30;
+        t[13] = c31;
+        t[14] = c32;
+        t[15] = c33;
+        for (int ii = 0; ii < rows; ii++) {
+            int ci = cOff + ii * ldc;
+            for (int jj = 0; jj < cols; jj++) {
+                c[ci + jj] += alpha * t[ii * NR + jj];
+            }
+        }
+    }
+
+    static int roundUp(int value, int multiple) {
+        return (value + multiple - 1) / multiple * multiple;
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Parallel;
+
+/**
+ * Inverse and determinant of a square matrix kept up to date under edits.
+ * <p/>
+ * Changing one element is the rank-1 update A + d*e_i*e_j', so the
+ * Sherman-Morrison formula gives the new inverse and the matrix determinant
+ * lemma the new determinant, both in O(n^2) instead of a new O(n^3)
+ * factorization. Low-rank changes A + U*V' use the Woodbury identity and
+ * cost O(n^2*k).
+ * <p/>
+ * Rounding errors accumulate with every update, so the inverse is computed
+ * again from an LU factorization after {@link #refactorInterval()} updates,
+ * and right away when an update is ill-conditioned or leaves the matrix
+ * singular.
+ * <p/>
+ * Obtained from {@link Matrix#incremental()}; it follows {@link Matrix#set}
+ * until the matrix is modified in any other way.
+ */
+public class IncrementalInverse {
+
+    /**
+     * Default number of updates between two refactorizations.
+     */
+    public static final int DEFAULT_REFACTOR_INTERVAL = 32;
+
+    /**
+     * An update whose denominator loses more than this fraction of its
+     * magnitude to cancellation is not applied incrementally.
+     */
+    private static final double CANCELLATION = 1e-8;
+
+    private final Matrix A;
+    private final int n;
+    private final double[] column, row;
+    private LUDecomposition factor;
+    private Matrix inverse;
+    private double det;
+    private int updates, interval = DEFAULT_REFACTOR_INTERVAL;
+
+    IncrementalInverse(Matrix A) {
+        this.A = A;
+        n = A.rows();
+        column = new double[n];
+        row = new double[n];
+        refactor();
+    }
+
+    /**
+     * @return number of updates after which the inverse is recomputed.
+     */
+    public int refactorInterval() {
+        return interval;
+    }
+
+    /**
+     * @param interval number of updates after which the inverse is recomputed, 1 to refactor on every update
+     */
+    public void setRefactorInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Refactor interval must be positive.");
+        }
+        this.interval = interval;
+    }
+
+    /**
+     * @return number of updates applied since the last refactorization.
+     */
+    public int updates() {
+        return updates;
+    }
+
+    /**
+     * Is the matrix nonsingular?
+     *
+     * @return true if the inverse exists.
+     */
+    public boolean isNonSingular() {
+        return inverse != null;
+    }
+
+    /**
+     * Determinant
+     *
+     * @return det(A)
+     */
+    public double det() {
+        return det;
+    }
+
+    /**
+     * Matrix inverse
+     *
+     * @return copy of inverse(A)
+     * @throws RuntimeException Matrix is singular.
+     */
+    public Matrix inverse() {
+        if (inverse == null) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+        return inverse.copy();
+    }
+
+    /**
+     * Solve A*X = B with the current inverse, in O(n^2) per column.
+     *
+     * @param B A Matrix with as many rows as A and any number of columns.
+     * @return inverse(A)*B
+     * @throws IllegalArgumentException Matrix row dimensions must agree.
+     * @throws RuntimeException         Matrix is singular.
+     */
+    public Matrix solve(Matrix B) {
+        if (B.rows() != n) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        if (inverse == null) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+        return inverse.mult(B);
+    }
+
+    /**
+     * Recompute the inverse and determinant from an LU factorization of A.
+     */
+    public void refactor() {
+        if (factor == null) {
+            factor = new LUDecomposition(A);
+        } else {
+            factor.decompose(A);
+        }
+        det = factor.det();
+        inverse = factor.isNonSingular() ? factor.inverse() : null;
+        updates = 0;
+    }
+
+    /**
+     * A = A + U*V', updating the inverse with the Woodbury identity.
+     *
+     * @param U n-by-k matrix
+     * @param V n-by-k matrix
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     */
+    public void update(Matrix U, Matrix V) {
+        if (U.rows() != n || V.rows() != n || U.columns() != V.columns()) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        int k = U.columns();
+        Matrix Vt = V.transpose();
+        Gemm.multiply(n, n, k, 1.0, U.data(), U.offset(), U.ld(), Vt.data(), Vt.offset(), Vt.ld(),
+                A.data(), A.offset(), A.ld());
+        A.dropFactorizations();
+
+        updates += k;
+        if (inverse == null || updates >= interval) {
+            refactor();
+            return;
+        }
+        // inverse(A + U*V') = inverse(A) - P*inverse(S)*V'*inverse(A),
+        // P = inverse(A)*U, S = I + V'*P, det(A + U*V') = det(A)*det(S).
+        Matrix P = inverse.mult(U);
+        Matrix S = Matrix.identity(k, k).multAdd(1.0, Vt, P);
+        LUDecomposition small = new LUDecomposition(S);
+        if (!small.isNonSingular()) {
+            refactor();
+            return;
+        }
+        Matrix Z = small.solve(Vt.mult(inverse));
+        inverse.multAdd(-1.0, P, Z);
+        det *= small.det();
+    }
+
+    /**
+     * Element (i, j) of A was changed by delta.
+     */
+    void update(int i, int j, double delta) {
+        updates++;
+        if (inverse == null || updates >= interval) {
+            refactor();
+            return;
+        }
+        final double[] x = inverse.data();
+        final int off = inverse.offset(), ld = inverse.ld();
+        double g = delta * x[off + j * ld + i];
+        double den = 1.0 + g;
+        if (Math.abs(den) < CANCELLATION * Math.max(1.0, Math.abs(g))) {
+            refactor();
+            return;
+        }
+        // inverse -= (delta / den) * inverse(:, i) * inverse(j, :)
+        for (int k = 0; k < n; k++) {
+            column[k] = -delta / den * x[off + k * ld + i];
+        }
+        System.arraycopy(x, off + j * ld, row, 0, n);
+        Parallel.forRange(0, n, n, 64, new Parallel.RangeTask() {
+            public void run(int from, int to) {
+                for (int k = from; k < to; k++) {
+                    Kernels.axpy(n, column[k], row, 0, x, off + k * ld);
+                }
+            }
+        });
+        det *= den;
+    }
+}
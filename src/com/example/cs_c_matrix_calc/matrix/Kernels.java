@@ -0,0 +1,90 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+/**
+ * Contiguous level-1 kernels shared by the element-wise operations and the
+ * factorization updates.
+ * <p/>
+ * Every kernel is a counted loop over one index into flat arrays, the shape
+ * the JIT's superword pass turns into SIMD loads and stores. Loops written
+ * against row offsets such as lu[rowI + j] often are not vectorized, because
+ * the compiler can not prove the rows do not overlap. Reductions are never
+ * vectorized automatically, since reordering them changes the rounding, so
+ * {@link #dot} keeps four independent partial sums.
+ */
+final class Kernels {
+
+    private Kernels() {
+    }
+
+    /**
+     * z = x + y
+     */
+    static void add(int n, double[] x, int xOff, double[] y, int yOff, double[] z, int zOff) {
+        for (int i = 0; i < n; i++) {
+            z[zOff + i] = x[xOff + i] + y[yOff + i];
+        }
+    }
+
+    /**
+     * z = x - y
+     */
+    static void sub(int n, double[] x, int xOff, double[] y, int yOff, double[] z, int zOff) {
+        for (int i = 0; i < n; i++) {
+            z[zOff + i] = x[xOff + i] - y[yOff + i];
+        }
+    }
+
+    /**
+     * z = alpha * x
+     */
+    static void scale(int n, double alpha, double[] x, int xOff, double[] z, int zOff) {
+        for (int i = 0; i < n; i++) {
+            z[zOff + i] = alpha * x[xOff + i];
+        }
+    }
+
+    /**
+     * z = -x
+     */
+    static void neg(int n, double[] x, int xOff, double[] z, int zOff) {
+        for (int i = 0; i < n; i++) {
+            z[zOff + i] = -x[xOff + i];
+        }
+    }
+
+    /**
+     * z = x + alpha * y
+     */
+    static void axpy(int n, double alpha, double[] x, int xOff, double[] y, int yOff, double[] z, int zOff) {
+        for (int i = 0; i < n; i++) {
+            z[zOff + i] = x[xOff + i] + alpha * y[yOff + i];
+        }
+    }
+
+    /**
+     * y += alpha * x
+     */
+    static void axpy(int n, double alpha, double[] x, int xOff, double[] y, int yOff) {
+        for (int i = 0; i < n; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    /**
+     * @return sum of x[i] * y[i]
+     */
+    static double dot(int n, double[] x, int xOff, double[] y, int yOff) {
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int i = 0;
+        for (; i <= n - 4; i += 4) {
+            s0 += x[xOff + i] * y[yOff + i];
+            s1 += x[xOff + i + 1] * y[yOff + i + 1];
+            s2 += x[xOff + i + 2] * y[yOff + i + 2];
+            s3 += x[xOff + i + 3] * y[yOff + i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += x[xOff + i] * y[yOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
@@ -9,69 +9,150 @@ public class LUDecomposition implements Serializable {
     private int rows, columns, pivotSign; // pivot sign
     private int[] pivot; // Internal storage of pivot vector.
 
+    /**
+     * Width of the column panels factored between two trailing updates.
+     */
+    private static final int BLOCK = 64;
+
     /**
      * LU Decomposition
      * Structure to access L, U and pivot.
+     * <p/>
+     * Blocked right-looking factorization with partial pivoting: each panel of
+     * BLOCK columns is factored, the matching block row of U is found by a
+     * triangular solve, and the trailing matrix gets a single matrix-matrix
+     * update that {@link Gemm} runs on several threads for large inputs.
      *
      * @param A Rectangular matrix
      */
     public LUDecomposition(Matrix A) {
+        decompose(A);
+    }
 
-        LU = A.copy();
+    /**
+     * Factor another matrix into this decomposition, reusing its storage when
+     * A has the same dimensions as the previous one.
+     * Do not use it on a decomposition that a Matrix caches, see {@link Matrix#lu()}.
+     *
+     * @param A Rectangular matrix
+     * @return this decomposition
+     */
+    public LUDecomposition decompose(Matrix A) {
+        if (LU == null || LU.rows() != A.rows() || LU.columns() != A.columns()) {
+            LU = new Matrix(A.rows(), A.columns());
+            pivot = new int[A.rows()];
+        }
+        A.copyTo(LU);
         rows = A.rows();
         columns = A.columns();
-        pivot = new int[rows];
         for (int i = 0; i < rows; i++) {
             pivot[i] = i;
         }
         pivotSign = 1;
-        double[] rowI;
-        double[] columnJ = new double[rows];
+        double[] lu = LU.data();
 
-        for (int j = 0; j < columns; j++) {
+        int steps = Math.min(rows, columns);
+        for (int j0 = 0; j0 < steps; j0 += BLOCK) {
+            int jb = Math.min(BLOCK, steps - j0);
+            int j1 = j0 + jb;
+            factorPanel(lu, j0, j1);
 
-            for (int i = 0; i < rows; i++) {
-                columnJ[i] = LU.get(i, j);
+            if (j1 < columns) {
+                // U12 = inverse(L11) * A12
+                for (int i = j0 + 1; i < j1; i++) {
+                    int rowI = i * columns;
+                    for (int k = j0; k < i; k++) {
+                        double lik = lu[rowI + k];
+                        if (lik == 0.0) {
+                            continue;
+                        }
+                        Kernels.axpy(columns - j1, -lik, lu, k * columns + j1, lu, rowI + j1);
+                    }
+                }
+                // A22 -= L21 * U12
+                Gemm.multiply(rows - j1, columns - j1, jb, -1.0,
+                        lu, j1 * columns + j0, columns,
+                        lu, j0 * columns + j1, columns,
+                        lu, j1 * columns + j1, columns);
             }
+        }
+        return this;
+    }
 
-            for (int i = 0; i < rows; i++) {
-                rowI = LU.matrix()[i];
+    /**
+     * Rebuild a decomposition from stored factors, see {@link MatrixIO}.
+     *
+     * @param LU        combined factors, L below the unit diagonal and U on and above it
+     * @param pivot     pivot permutation
+     * @param pivotSign sign of the permutation
+     */
+    LUDecomposition(Matrix LU, int[] pivot, int pivotSign) {
+        this.LU = LU;
+        this.rows = LU.rows();
+        this.columns = LU.columns();
+        this.pivot = pivot;
+        this.pivotSign = pivotSign;
+    }
 
-                int kmax = Math.min(i, j);
-                double s = 0.0;
-                for (int k = 0; k < kmax; k++) {
-                    s += rowI[k] * columnJ[k];
-                }
+    Matrix packed() {
+        return LU;
+    }
 
-                rowI[j] = columnJ[i] -= s;
-            }
+    int[] pivot() {
+        return pivot;
+    }
 
+    int pivotSign() {
+        return pivotSign;
+    }
+
+    /**
+     * Unblocked right-looking factorization of columns j0..j1-1, rows j0..rows-1.
+     * Pivot rows are swapped across the full width of the matrix.
+     */
+    private void factorPanel(double[] lu, int j0, int j1) {
+        for (int j = j0; j < j1; j++) {
             int p = j;
+            double max = Math.abs(lu[j * columns + j]);
             for (int i = j + 1; i < rows; i++) {
-                if (Math.abs(columnJ[i]) > Math.abs(columnJ[p])) {
+                double v = Math.abs(lu[i * columns + j]);
+                if (v > max) {
+                    max = v;
                     p = i;
                 }
             }
             if (p != j) {
-                for (int k = 0; k < columns; k++) {
-                    double t = LU.get(p, k);
-                    LU.set(p, k, LU.get(j, k));
-                    LU.set(j, k, t);
-                }
+                swapRows(lu, p, j);
                 int k = pivot[p];
                 pivot[p] = pivot[j];
                 pivot[j] = k;
                 pivotSign = -pivotSign;
             }
 
-            if (j < rows & LU.get(j, j) != 0.0) {
+            int rowJ = j * columns;
+            double ljj = lu[rowJ + j];
+            if (ljj != 0.0) {
                 for (int i = j + 1; i < rows; i++) {
-                    LU.set(i, j, LU.get(i, j) / LU.get(j, j));
+                    int rowI = i * columns;
+                    double lij = lu[rowI + j] /= ljj;
+                    if (lij == 0.0) {
+                        continue;
+                    }
+                    Kernels.axpy(j1 - j - 1, -lij, lu, rowJ + j + 1, lu, rowI + j + 1);
                 }
             }
         }
     }
 
+    private void swapRows(double[] lu, int p, int q) {
+        int rowP = p * columns, rowQ = q * columns;
+        for (int k = 0; k < columns; k++) {
+            double t = lu[rowP + k];
+            lu[rowP + k] = lu[rowQ + k];
+            lu[rowQ + k] = t;
+        }
+    }
+
     public boolean isNonSingular() {
         for (int j = 0; j < columns; j++) {
             if (Math.abs(LU.get(j, j)) < EPS)
@@ -87,15 +168,14 @@ public class LUDecomposition implements Serializable {
      */
     public Matrix getL() {
         Matrix L = new Matrix(rows, columns);
-        double[][] matrixL = L.matrix();
+        double[] matrixL = L.data();
+        double[] lu = LU.data();
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < columns; j++) {
                 if (i > j) {
-                    matrixL[i][j] = LU.get(i, j);
+                    matrixL[i * columns + j] = lu[i * columns + j];
                 } else if (i == j) {
-                    matrixL[i][j] = 1.0;
-                } else {
-                    matrixL[i][j] = 0.0;
+                    matrixL[i * columns + j] = 1.0;
                 }
             }
         }
@@ -109,14 +189,11 @@ public class LUDecomposition implements Serializable {
      */
     public Matrix getU() {
         Matrix U = new Matrix(columns, columns);
-        double[][] matrixU = U.matrix();
+        double[] matrixU = U.data();
+        double[] lu = LU.data();
         for (int i = 0; i < columns; i++) {
-            for (int j = 0; j < columns; j++) {
-                if (i <= j) {
-                    matrixU[i][j] = LU.get(i, j);
-                } else {
-                    matrixU[i][j] = 0.0;
-                }
+            for (int j = i; j < columns; j++) {
+                matrixU[i * columns + j] = lu[i * columns + j];
             }
         }
         return U;
@@ -148,37 +225,187 @@ public class LUDecomposition implements Serializable {
      * @throws RuntimeException         Matrix is singular.
      */
     public Matrix solve(Matrix B) {
+        return solve(B, new Matrix(rows, B.columns()));
+    }
+
+    /**
+     * Solve A*X = B into a given matrix, without allocating.
+     *
+     * @param B    A Matrix with as many rows as A and any number of columns.
+     * @param Xmat Matrix of the dimensions of B that receives X, may be B itself.
+     * @return Xmat
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     * @throws RuntimeException         Matrix is singular.
+     */
+    public Matrix solve(Matrix B, Matrix Xmat) {
         if (B.rows() != rows) {
             throw new IllegalArgumentException("Matrix row dimensions must agree.");
         }
+        if (Xmat.rows() != rows || Xmat.columns() != B.columns()) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
         if (!this.isNonSingular()) {
             throw new RuntimeException("Matrix is singular.");
         }
 
-        // Copy right hand side with pivoting
+        // Copy right hand side with pivoting, through a scratch copy if X shares storage with B.
         int nx = B.columns();
-        Matrix Xmat = B.subMatrix(pivot, 0, nx - 1);
-        double[][] X = Xmat.matrix();
+        double[] b = B.data();
+        int bo = B.offset(), ldb = B.ld();
+        double[] X = Xmat.data();
+        int xo = Xmat.offset(), ldx = Xmat.ld();
+        if (X == b) {
+            b = Workspace.local().doubles(Workspace.RHS, rows * nx);
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(X, bo + i * ldb, b, i * nx, nx);
+            }
+            bo = 0;
+            ldb = nx;
+        }
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(b, bo + pivot[i] * ldb, X, xo + i * ldx, nx);
+        }
+        Xmat.invalidate();
+        double[] lu = LU.data();
 
         // Solve L*Y = B(pivot,:)
         for (int k = 0; k < columns; k++) {
+            int rowK = xo + k * ldx;
             for (int i = k + 1; i < columns; i++) {
+                double lik = lu[i * columns + k];
+                int rowI = xo + i * ldx;
                 for (int j = 0; j < nx; j++) {
-                    X[i][j] -= X[k][j] * LU.get(i, k);
+                    X[rowI + j] -= X[rowK + j] * lik;
                 }
             }
         }
         // Solve U*X = Y;
         for (int k = columns - 1; k >= 0; k--) {
+            int rowK = xo + k * ldx;
+            double ukk = lu[k * columns + k];
             for (int j = 0; j < nx; j++) {
-                X[k][j] /= LU.get(k, k);
+                X[rowK + j] /= ukk;
             }
             for (int i = 0; i < k; i++) {
+                double uik = lu[i * columns + k];
+                int rowI = xo + i * ldx;
                 for (int j = 0; j < nx; j++) {
-                    X[i][j] -= X[k][j] * LU.get(i, k);
+                    X[rowI + j] -= X[rowK + j] * uik;
                 }
             }
         }
         return Xmat;
     }
-}
\ No newline at end of file
+
+    /**
+     * Solve X*A = B
+     *
+     * @param B A Matrix with as many columns as A and any number of rows.
+     * @return X so that X*L*U = B*P', where P is the row permutation of A
+     * @throws IllegalArgumentException Matrix must be square, column dimensions must agree.
+     * @throws RuntimeException         Matrix is singular.
+     */
+    public Matrix solveRight(Matrix B) {
+        if (rows != columns) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        if (B.columns() != columns) {
+            throw new IllegalArgumentException("Matrix column dimensions must agree.");
+        }
+        if (!this.isNonSingular()) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+
+        int n = columns;
+        int nx = B.rows();
+        Matrix Xmat = B.copy();
+        double[] X = Xmat.data();
+        double[] lu = LU.data();
+        double[] row = Workspace.local().doubles(Workspace.PANEL, n);
+
+        for (int r = 0; r < nx; r++) {
+            int rowR = r * n;
+            // Solve Z*U = B(r,:)
+            for (int j = 0; j < n; j++) {
+                int rowJ = j * n;
+                double zj = X[rowR + j] /= lu[rowJ + j];
+                Kernels.axpy(n - j - 1, -zj, lu, rowJ + j + 1, X, rowR + j + 1);
+            }
+            // Solve Y*L = Z
+            for (int j = n - 1; j >= 0; j--) {
+                int rowJ = j * n;
+                double yj = X[rowR + j];
+                Kernels.axpy(j, -yj, lu, rowJ, X, rowR);
+            }
+            // X = Y*P
+            System.arraycopy(X, rowR, row, 0, n);
+            for (int i = 0; i < n; i++) {
+                X[rowR + pivot[i]] = row[i];
+            }
+        }
+        return Xmat;
+    }
+
+    /**
+     * Inverse of A from the factors, without forming the identity:
+     * invert U in place, solve inverse(A)*L = inverse(U), then undo the pivoting.
+     *
+     * @return inverse(A)
+     * @throws IllegalArgumentException Matrix must be square.
+     * @throws RuntimeException         Matrix is singular.
+     */
+    public Matrix inverse() {
+        if (rows != columns) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        if (!this.isNonSingular()) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+
+        int n = columns;
+        Matrix Xmat = LU.copy();
+        double[] X = Xmat.data();
+        double[] work = Workspace.local().doubles(Workspace.PANEL, n);
+
+        // inverse(U), column by column using the already inverted leading block.
+        for (int j = 0; j < n; j++) {
+            int jj = j * n + j;
+            X[jj] = 1.0 / X[jj];
+            double ajj = -X[jj];
+            for (int p = 0; p < j; p++) {
+                double t = X[p * n + j];
+                for (int i = 0; i < p; i++) {
+                    X[i * n + j] += t * X[i * n + p];
+                }
+                X[p * n + j] = t * X[p * n + p];
+            }
+            for (int i = 0; i < j; i++) {
+                X[i * n + j] *= ajj;
+            }
+        }
+
+        // Solve inverse(A)*L = inverse(U), last column first.
+        for (int j = n - 1; j >= 0; j--) {
+            for (int i = j + 1; i < n; i++) {
+                work[i] = X[i * n + j];
+                X[i * n + j] = 0.0;
+            }
+            if (j < n - 1) {
+                for (int i = 0; i < n; i++) {
+                    int rowI = i * n;
+                    X[rowI + j] -= Kernels.dot(n - j - 1, X, rowI + j + 1, work, j + 1);
+                }
+            }
+        }
+
+        // inverse(A) = inverse(U)*inverse(L)*P, permute the columns of each row.
+        for (int i = 0; i < n; i++) {
+            int rowI = i * n;
+            System.arraycopy(X, rowI, work, 0, n);
+            for (int p = 0; p < n; p++) {
+                X[rowI + pivot[p]] = work[p];
+            }
+        }
+        return Xmat;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * File-backed matrix for data that does not fit in the Java heap.
+ * <p/>
+ * The tiles, see {@link TiledMatrix}, are stored in a memory-mapped file
+ * of little-endian doubles with no header, so the file can be mapped again
+ * later with {@link #open}.
+ */
+public class MappedMatrix extends TiledMatrix {
+
+    private final File file;
+
+    private MappedMatrix(File file, int rows, int columns, int tileSize, int cachedTiles, boolean create)
+            throws IOException {
+        super(rows, columns, tileSize, cachedTiles);
+        this.file = file;
+        long length = storageBytes();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (create) {
+                raf.setLength(0);
+                raf.setLength(length);
+            } else if (raf.length() != length) {
+                throw new IOException("File length does not match the matrix dimensions.");
+            }
+            FileChannel channel = raf.getChannel();
+            DoubleBuffer[] segments = new DoubleBuffer[segmentCount()];
+            long start = 0;
+            for (int s = 0; s < segments.length; s++) {
+                long size = segmentBytes(s);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+                segments[s] = buffer.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                start += size;
+            }
+            attach(segments);
+        } finally {
+            // The mappings stay valid after the channel is closed.
+            raf.close();
+        }
+    }
+
+    /**
+     * Create a rows-by-columns matrix of zeros in a new or truncated file.
+     *
+     * @param file    backing file
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     * @return file-backed matrix
+     * @throws IOException the file can not be created or mapped
+     */
+    public static MappedMatrix create(File file, int rows, int columns) throws IOException {
+        return create(file, rows, columns, DEFAULT_TILE_SIZE, DEFAULT_CACHED_TILES);
+    }
+
+    /**
+     * Create a rows-by-columns matrix of zeros in a new or truncated file.
+     *
+     * @param file        backing file
+     * @param rows        Number of rows.
+     * @param columns     Number of colums.
+     * @param tileSize    Rows and columns of a tile.
+     * @param cachedTiles Number of tiles kept in the heap, at least 4.
+     * @return file-backed matrix
+     * @throws IOException the file can not be created or mapped
+     */
+    public static MappedMatrix create(File file, int rows, int columns, int tileSize, int cachedTiles)
+            throws IOException {
+        return new MappedMatrix(file, rows, columns, tileSize, cachedTiles, true);
+    }
+
+    /**
+     * Map an existing file written by a matrix with the same dimensions and tile size.
+     *
+     * @param file        backing file
+     * @param rows        Number of rows.
+     * @param columns     Number of colums.
+     * @param tileSize    Rows and columns of a tile.
+     * @param cachedTiles Number of tiles kept in the heap, at least 4.
+     * @return file-backed matrix
+     * @throws IOException the file can not be mapped or has the wrong length
+     */
+    public static MappedMatrix open(File file, int rows, int columns, int tileSize, int cachedTiles)
+            throws IOException {
+        return new MappedMatrix(file, rows, columns, tileSize, cachedTiles, false);
+    }
+
+    /**
+     * Copy a dense matrix into a new file.
+     *
+     * @param A    dense matrix
+     * @param file backing file
+     * @return file-backed copy of A
+     * @throws IOException the file can not be created or mapped
+     */
+    public static MappedMatrix fromDense(Matrix A, File file) throws IOException {
+        MappedMatrix X = create(file, A.rows(), A.columns());
+        X.copyFrom(A);
+        return X;
+    }
+
+    /**
+     * @return the backing file.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Out-of-core product, one tile of the result at a time.
+     *
+     * @param other tiled matrix with the same tile size
+     * @param file  backing file of the result
+     * @return matrix * other
+     * @throws IllegalArgumentException Matrix inner dimensions or tile sizes must agree.
+     * @throws IOException              the result file can not be created
+     */
+    public MappedMatrix mult(TiledMatrix other, File file) throws IOException {
+        MappedMatrix X = create(file, rows(), other.columns(), tileSize(), cachedTiles());
+        multInto(other, X);
+        return X;
+    }
+
+    /**
+     * Matrix transpose into a temporary file that is deleted when the JVM exits.
+     *
+     * @return matrix'
+     * @throws RuntimeException the temporary file can not be created
+     */
+    public MappedMatrix transpose() {
+        try {
+            File tmp = File.createTempFile("matrix", ".tiles");
+            tmp.deleteOnExit();
+            return transpose(tmp);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Out-of-core transpose, tile by tile.
+     *
+     * @param file backing file of the result
+     * @return matrix'
+     * @throws IOException the result file can not be created
+     */
+    public MappedMatrix transpose(File file) throws IOException {
+        MappedMatrix X = create(file, columns(), rows(), tileSize(), cachedTiles());
+        transposeInto(X);
+        return X;
+    }
+
+    /**
+     * Out-of-core sum, tile by tile.
+     *
+     * @param other tiled matrix with the same dimensions and tile size
+     * @param file  backing file of the result
+     * @return matrix + other
+     * @throws IOException the result file can not be created
+     */
+    public MappedMatrix plus(TiledMatrix other, File file) throws IOException {
+        MappedMatrix X = create(file, rows(), columns(), tileSize(), cachedTiles());
+        combineInto(other, 1.0, X);
+        return X;
+    }
+
+    /**
+     * Out-of-core difference, tile by tile.
+     *
+     * @param other tiled matrix with the same dimensions and tile size
+     * @param file  backing file of the result
+     * @return matrix - other
+     * @throws IOException the result file can not be created
+     */
+    public MappedMatrix minus(TiledMatrix other, File file) throws IOException {
+        MappedMatrix X = create(file, rows(), columns(), tileSize(), cachedTiles());
+        combineInto(other, -1.0, X);
+        return X;
+    }
+
+    /**
+     * Out-of-core LU factorization with partial pivoting.
+     *
+     * @param file backing file of the factors
+     * @return LU decomposition of matrix
+     * @throws IllegalArgumentException Matrix must be square.
+     * @throws IOException              the factor file can not be created
+     */
+    public TiledLUDecomposition lu(File file) throws IOException {
+        return new TiledLUDecomposition(this, create(file, rows(), columns(), tileSize(), cachedTiles()));
+    }
+
+    /**
+     * Mappings can not be unmapped explicitly, the collector does it once
+     * the buffers are unreachable.
+     */
+    void release(DoubleBuffer[] segments) {
+    }
+}
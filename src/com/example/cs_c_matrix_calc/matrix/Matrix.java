@@ -1,12 +1,47 @@
 package com.example.cs_c_matrix_calc.matrix;
 
+import com.example.cs_c_matrix_calc.matrix.utils.Parallel;
+
 import java.io.Serializable;
 
-public class Matrix implements Cloneable, Serializable {
+/**
+ * Dense matrix stored row-major in a single double[].
+ * <p/>
+ * Element (i, j) lives at data[offset + i * ld + j], where ld (the leading
+ * dimension) is at least the number of columns. A matrix may therefore be a
+ * window into a larger array, see {@link #Matrix(double[], int, int, int, int)}.
+ * <p/>
+ * The Cholesky, LU and QR factorizations used by {@link #solve}, {@link #inverse}
+ * and {@link #det} are cached until the matrix is modified. Writes that bypass the
+ * Matrix methods, through {@link #data()} or another matrix sharing the same
+ * array, must be followed by {@link #invalidate()}.
+ */
+public class Matrix implements RealMatrix, Cloneable, Serializable {
+
+    /**
+     * Element-wise operations, see {@link #elementwise}.
+     */
+    private static final int PLUS = 0, MINUS = 1, UMINUS = 2, SCALE = 3, AXPY = 4;
+
+    private static volatile MultiplicationAlgorithm defaultAlgorithm = MultiplicationAlgorithm.CLASSICAL;
 
-    private double[][] matrix;
+    private double[] data;
+    private int offset, ld;
     private int rows, columns;
 
+    /**
+     * Factorizations of the current contents, built on first use and dropped by
+     * {@link #invalidate()} whenever the matrix is written through its own methods.
+     */
+    private transient LUDecomposition lu;
+    private transient QRDecomposition qr;
+    private transient CholeskyDecomposition chol;
+
+    /**
+     * Inverse and determinant tracked through {@link #set}, see {@link #incremental()}.
+     */
+    private transient IncrementalInverse incremental;
+
     /**
      * Construct an rows-by-columns matrix.
      *
@@ -16,7 +51,8 @@ public class Matrix implements Cloneable, Serializable {
     public Matrix(int rows, int columns) {
         this.rows = rows;
         this.columns = columns;
-        matrix = new double[rows][columns];
+        this.ld = columns;
+        data = new double[rows * columns];
     }
 
     /**
@@ -27,9 +63,10 @@ public class Matrix implements Cloneable, Serializable {
      * @param columns Number of colums.
      */
     public Matrix(double[][] matrix, int rows, int columns) {
-        this.matrix = matrix;
-        this.rows = rows;
-        this.columns = columns;
+        this(rows, columns);
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(matrix[i], 0, data, i * columns, columns);
+        }
     }
 
     /**
@@ -39,37 +76,117 @@ public class Matrix implements Cloneable, Serializable {
      * @throws IllegalArgumentException All rows must have the same length
      */
     public Matrix(double[][] array2D) {
-        rows = array2D.length;
-        columns = array2D[0].length;
+        this(array2D, array2D.length, array2D[0].length);
         for (int i = 0; i < rows; i++) {
             if (array2D[i].length != columns) {
                 throw new IllegalArgumentException("All rows must have the same length.");
             }
         }
-        this.matrix = array2D;
     }
 
     /**
-     * Access the internal two-dimensional array.
+     * Wrap a row-major array without copying.
+     *
+     * @param data    Row-major elements, at least rows * columns long.
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     */
+    public Matrix(double[] data, int rows, int columns) {
+        this(data, 0, columns, rows, columns);
+    }
+
+    /**
+     * Wrap a window of a row-major array without copying.
+     *
+     * @param data    Backing array.
+     * @param offset  Index of element (0, 0).
+     * @param ld      Leading dimension, distance between the starts of two rows.
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     * @throws IllegalArgumentException Leading dimension or window out of range.
+     */
+    public Matrix(double[] data, int offset, int ld, int rows, int columns) {
+        if (ld < columns) {
+            throw new IllegalArgumentException("Leading dimension must not be less than columns.");
+        }
+        if (rows > 0 && columns > 0 && (offset < 0 || offset + (rows - 1) * ld + columns > data.length)) {
+            throw new IllegalArgumentException("Matrix window is out of array bounds.");
+        }
+        this.data = data;
+        this.offset = offset;
+        this.ld = ld;
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Copy the elements into a two-dimensional array.
+     * Kept for callers written against the old double[][] storage; writes to the
+     * returned array do not reach the matrix, use {@link #set} or {@link #data()}.
      *
-     * @return Pointer to the two-dimensional array of matrix elements.
+     * @return New two-dimensional array of matrix elements.
      */
     public double[][] matrix() {
-        return matrix;
+        double[][] X = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(data, offset + i * ld, X[i], 0, columns);
+        }
+        return X;
+    }
+
+    /**
+     * Access the internal row-major array.
+     * Call {@link #invalidate()} after writing to it.
+     *
+     * @return Pointer to the backing array, see {@link #offset()} and {@link #ld()}.
+     */
+    public double[] data() {
+        return data;
+    }
+
+    /**
+     * @return index of element (0, 0) in {@link #data()}.
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return leading dimension, distance between the starts of two rows in {@link #data()}.
+     */
+    public int ld() {
+        return ld;
     }
 
     /**
      * Make a deep copy of a matrix
      */
     public Matrix copy() {
-        Matrix copy = new Matrix(rows, columns);
-        double[][] matrixX = copy.matrix();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                matrixX[i][j] = matrix[i][j];
+        return copyTo(new Matrix(rows, columns));
+    }
+
+    /**
+     * dest = matrix
+     *
+     * @param dest matrix of the same dimensions that receives the elements,
+     *             it must not overlap this one unless it is this matrix
+     * @return dest
+     */
+    public Matrix copyTo(Matrix dest) {
+        if (!isMatrixEqualTo(dest))
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        if (dest == this) {
+            return dest;
+        }
+        dest.invalidate();
+        if (ld == columns && dest.ld == columns) {
+            System.arraycopy(data, offset, dest.data, dest.offset, rows * columns);
+        } else {
+            for (int i = 0; i < rows; i++) {
+                System.arraycopy(data, offset + i * ld, dest.data, dest.offset + i * dest.ld, columns);
             }
         }
-        return copy;
+        return dest;
     }
 
     /**
@@ -106,7 +223,8 @@ public class Matrix implements Cloneable, Serializable {
      * @throws ArrayIndexOutOfBoundsException
      */
     public double get(int i, int j) {
-        return matrix[i][j];
+        checkIndex(i, j);
+        return data[offset + i * ld + j];
     }
 
     /**
@@ -120,17 +238,13 @@ public class Matrix implements Cloneable, Serializable {
      * @throws ArrayIndexOutOfBoundsException Submatrix indices
      */
     public Matrix subMatrix(int i0, int i1, int j0, int j1) {
-        Matrix X = new Matrix(i1 - i0 + 1, j1 - j0 + 1);
-        double[][] B = X.matrix();
-        try {
-            for (int i = i0; i <= i1; i++) {
-                for (int j = j0; j <= j1; j++) {
-                    B[i - i0][j - j0] = matrix[i][j];
-                }
-            }
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (i0 < 0 || i1 >= rows || j0 < 0 || j1 >= columns) {
             throw new ArrayIndexOutOfBoundsException("Submatrix indices");
         }
+        Matrix X = new Matrix(i1 - i0 + 1, j1 - j0 + 1);
+        for (int i = i0; i <= i1; i++) {
+            System.arraycopy(data, offset + i * ld + j0, X.data, (i - i0) * X.ld, X.columns);
+        }
         return X;
     }
 
@@ -144,16 +258,15 @@ public class Matrix implements Cloneable, Serializable {
      * @throws ArrayIndexOutOfBoundsException Submatrix indices
      */
     public Matrix subMatrix(int[] r, int j0, int j1) {
+        if (j0 < 0 || j1 >= columns) {
+            throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+        }
         Matrix X = new Matrix(r.length, j1 - j0 + 1);
-        double[][] B = X.matrix();
-        try {
-            for (int i = 0; i < r.length; i++) {
-                for (int j = j0; j <= j1; j++) {
-                    B[i][j - j0] = matrix[r[i]][j];
-                }
+        for (int i = 0; i < r.length; i++) {
+            if (r[i] < 0 || r[i] >= rows) {
+                throw new ArrayIndexOutOfBoundsException("Submatrix indices");
             }
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+            System.arraycopy(data, offset + r[i] * ld + j0, X.data, i * X.ld, X.columns);
         }
         return X;
     }
@@ -167,7 +280,111 @@ public class Matrix implements Cloneable, Serializable {
      * @throws ArrayIndexOutOfBoundsException
      */
     public void set(int i, int j, double s) {
-        matrix[i][j] = s;
+        checkIndex(i, j);
+        int p = offset + i * ld + j;
+        double delta = s - data[p];
+        data[p] = s;
+        if (incremental == null) {
+            invalidate();
+        } else if (delta != 0.0) {
+            dropFactorizations();
+            incremental.update(i, j, delta);
+        }
+    }
+
+    /**
+     * Drop the cached factorizations. Matrix methods that write to this matrix
+     * do it themselves; call it after writing through {@link #data()}.
+     */
+    public void invalidate() {
+        dropFactorizations();
+        incremental = null;
+    }
+
+    void dropFactorizations() {
+        lu = null;
+        qr = null;
+        chol = null;
+    }
+
+    /**
+     * Track the inverse and determinant incrementally: from now on each
+     * {@link #set} updates them in O(n^2), and {@link #det()} and
+     * {@link #inverse()} use them, until the matrix is modified another way.
+     *
+     * @return the tracker, also for low-rank updates
+     * @throws IllegalArgumentException Matrix must be square.
+     */
+    public IncrementalInverse incremental() {
+        if (rows != columns) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        IncrementalInverse f = incremental;
+        if (f == null) {
+            incremental = f = new IncrementalInverse(this);
+        }
+        return f;
+    }
+
+    /**
+     * LU factorization of this matrix, cached until the next modification.
+     *
+     * @return LU decomposition of matrix
+     */
+    public LUDecomposition lu() {
+        LUDecomposition f = lu;
+        if (f == null) {
+            lu = f = new LUDecomposition(this);
+        }
+        return f;
+    }
+
+    /**
+     * Cholesky factorization of this matrix, cached until the next modification.
+     * Check {@link CholeskyDecomposition#isSPD()} before using it.
+     *
+     * @return Cholesky decomposition of matrix
+     */
+    public CholeskyDecomposition cholesky() {
+        CholeskyDecomposition f = chol;
+        if (f == null) {
+            chol = f = new CholeskyDecomposition(this);
+        }
+        return f;
+    }
+
+    /**
+     * Is the matrix symmetric positive definite? Non-symmetric matrices fail an
+     * O(n^2) check, which compares elements exactly; symmetric ones are decided
+     * by attempting the Cholesky factorization, which is kept for later calls.
+     *
+     * @return true if A is exactly symmetric and positive definite.
+     */
+    public boolean isSPD() {
+        return rows == columns && cholesky().isSPD();
+    }
+
+    /**
+     * QR factorization of this matrix, cached until the next modification.
+     *
+     * @return QR decomposition of matrix
+     */
+    public QRDecomposition qr() {
+        QRDecomposition f = qr;
+        if (f == null) {
+            qr = f = new QRDecomposition(this);
+        }
+        return f;
+    }
+
+    /**
+     * Eigenvalue decomposition of a symmetric matrix.
+     *
+     * @return EigenvalueDecomposition of matrix
+     * @throws IllegalArgumentException Matrix must be symmetric.
+     */
+    public EigenvalueDecomposition eig() {
+        return new EigenvalueDecomposition(this);
     }
 
     /**
@@ -176,14 +393,31 @@ public class Matrix implements Cloneable, Serializable {
      * @return matrix'
      */
     public Matrix transpose() {
-        Matrix X = new Matrix(columns, rows);
-        double[][] C = X.matrix();
+        return transpose(new Matrix(columns, rows));
+    }
+
+    /**
+     * Matrix transpose into a destination.
+     *
+     * @param dest columns-by-rows matrix that receives the result, must not share storage with this one.
+     * @return dest
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     */
+    public Matrix transpose(Matrix dest) {
+        if (dest.rows != columns || dest.columns != rows) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        checkNoAlias(dest, this);
+        dest.invalidate();
+        double[] C = dest.data;
         for (int i = 0; i < rows; i++) {
+            int a = offset + i * ld;
+            int c = dest.offset + i;
             for (int j = 0; j < columns; j++) {
-                C[j][i] = matrix[i][j];
+                C[c + j * dest.ld] = data[a + j];
             }
         }
-        return X;
+        return dest;
     }
 
     /**
@@ -193,15 +427,20 @@ public class Matrix implements Cloneable, Serializable {
      */
     public Matrix uminus() {
         Matrix X = new Matrix(rows, columns);
-        double[][] C = X.matrix();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                C[i][j] = -matrix[i][j];
-            }
-        }
+        elementwise(UMINUS, null, 0.0, X);
         return X;
     }
 
+    /**
+     * matrix = -matrix
+     *
+     * @return this matrix
+     */
+    public Matrix uminusInPlace() {
+        elementwise(UMINUS, null, 0.0, this);
+        return this;
+    }
+
     /**
      * C = matrix + other
      *
@@ -209,17 +448,32 @@ public class Matrix implements Cloneable, Serializable {
      * @return matrix + other
      */
     public Matrix plus(Matrix other) {
-        if (!isMatrixEqualTo(other))
+        return plus(other, new Matrix(rows, columns));
+    }
+
+    /**
+     * dest = matrix + other
+     *
+     * @param other another matrix
+     * @param dest  matrix that receives the result, may be this or other
+     * @return dest
+     */
+    public Matrix plus(Matrix other, Matrix dest) {
+        if (!isMatrixEqualTo(other) || !isMatrixEqualTo(dest))
             throw new IllegalArgumentException("Matrix dimensions must agree.");
 
-        Matrix X = new Matrix(rows, columns);
-        double[][] C = X.matrix();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                C[i][j] = matrix[i][j] + other.matrix[i][j];
-            }
-        }
-        return X;
+        elementwise(PLUS, other, 0.0, dest);
+        return dest;
+    }
+
+    /**
+     * matrix = matrix + other
+     *
+     * @param other another matrix
+     * @return this matrix
+     */
+    public Matrix plusInPlace(Matrix other) {
+        return plus(other, this);
     }
 
     /**
@@ -229,17 +483,76 @@ public class Matrix implements Cloneable, Serializable {
      * @return matrix - other
      */
     public Matrix minus(Matrix other) {
+        return minus(other, new Matrix(rows, columns));
+    }
+
+    /**
+     * dest = matrix - other
+     *
+     * @param other another matrix
+     * @param dest  matrix that receives the result, may be this or other
+     * @return dest
+     */
+    public Matrix minus(Matrix other, Matrix dest) {
+
+        if (!isMatrixEqualTo(other) || !isMatrixEqualTo(dest))
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        elementwise(MINUS, other, 0.0, dest);
+        return dest;
+    }
+
+    /**
+     * matrix = matrix - other
+     *
+     * @param other another matrix
+     * @return this matrix
+     */
+    public Matrix minusInPlace(Matrix other) {
+        return minus(other, this);
+    }
+
+    /**
+     * matrix = s * matrix
+     *
+     * @param s scalar
+     * @return this matrix
+     */
+    public Matrix scaleInPlace(double s) {
+        elementwise(SCALE, null, s, this);
+        return this;
+    }
 
+    /**
+     * matrix = matrix + alpha * other
+     *
+     * @param alpha scalar
+     * @param other another matrix
+     * @return this matrix
+     */
+    public Matrix axpy(double alpha, Matrix other) {
         if (!isMatrixEqualTo(other))
             throw new IllegalArgumentException("Matrix dimensions must agree.");
-        Matrix X = new Matrix(rows, columns);
-        double[][] C = X.matrix();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                C[i][j] = matrix[i][j] - other.matrix[i][j];
-            }
+        elementwise(AXPY, other, alpha, this);
+        return this;
+    }
+
+    /**
+     * Select the kernel used by {@link #mult(Matrix)} and {@link #mult(Matrix, Matrix)}.
+     *
+     * @param algorithm CLASSICAL (the default) or STRASSEN
+     */
+    public static void setDefaultAlgorithm(MultiplicationAlgorithm algorithm) {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Algorithm must not be null.");
         }
-        return X;
+        defaultAlgorithm = algorithm;
+    }
+
+    /**
+     * @return the kernel used by {@link #mult(Matrix)}.
+     */
+    public static MultiplicationAlgorithm defaultAlgorithm() {
+        return defaultAlgorithm;
     }
 
     /**
@@ -250,55 +563,217 @@ public class Matrix implements Cloneable, Serializable {
      * @throws IllegalArgumentException Matrix inner dimensions must agree.
      */
     public Matrix mult(Matrix other) {
+        return mult(other, defaultAlgorithm);
+    }
+
+    /**
+     * Linear algebraic matrix multiplication with a chosen kernel, matrix * other
+     *
+     * @param other     another matrix
+     * @param algorithm kernel, see {@link MultiplicationAlgorithm}
+     * @return Matrix product, matrix * other
+     * @throws IllegalArgumentException Matrix inner dimensions must agree.
+     */
+    public Matrix mult(Matrix other, MultiplicationAlgorithm algorithm) {
         if (other.rows != columns) {
             throw new IllegalArgumentException("Matrix inner dimensions must agree.");
         }
         Matrix X = new Matrix(rows, other.columns);
-        double[][] C = X.matrix();
-        double[] Bcolj = new double[columns];
-        for (int j = 0; j < other.columns; j++) {
-            for (int k = 0; k < columns; k++) {
-                Bcolj[k] = other.matrix[k][j];
+        if (algorithm == MultiplicationAlgorithm.STRASSEN) {
+            Strassen.multiply(rows, other.columns, columns,
+                    data, offset, ld, other.data, other.offset, other.ld, X.data, 0, X.ld);
+            return X;
+        }
+        return X.multAdd(1.0, this, other);
+    }
+
+    /**
+     * Linear algebraic matrix multiplication into a destination, dest = matrix * other,
+     * with the {@link #defaultAlgorithm() default} kernel
+     *
+     * @param other another matrix
+     * @param dest  rows-by-other.columns matrix, must not share storage with either operand
+     * @return dest
+     * @throws IllegalArgumentException Matrix inner dimensions must agree.
+     */
+    public Matrix mult(Matrix other, Matrix dest) {
+        if (other.rows != columns) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        if (dest.rows != rows || dest.columns != other.columns) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        checkNoAlias(dest, this);
+        checkNoAlias(dest, other);
+        if (defaultAlgorithm == MultiplicationAlgorithm.STRASSEN) {
+            dest.invalidate();
+            Strassen.multiply(rows, other.columns, columns,
+                    data, offset, ld, other.data, other.offset, other.ld, dest.data, dest.offset, dest.ld);
+            return dest;
+        }
+        dest.fill(0.0);
+        return dest.multAdd(1.0, this, other);
+    }
+
+    /**
+     * Fused multiply-add, matrix = matrix + alpha * a * b
+     *
+     * @param alpha scalar
+     * @param a     left factor
+     * @param b     right factor
+     * @return this matrix
+     * @throws IllegalArgumentException Matrix inner dimensions must agree.
+     */
+    public Matrix multAdd(double alpha, Matrix a, Matrix b) {
+        if (b.rows != a.columns) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        if (rows != a.rows || columns != b.columns) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        checkNoAlias(this, a);
+        checkNoAlias(this, b);
+        invalidate();
+        Gemm.multiply(rows, columns, a.columns, alpha,
+                a.data, a.offset, a.ld, b.data, b.offset, b.ld, data, offset, ld);
+        return this;
+    }
+
+    /**
+     * Set every element to s.
+     *
+     * @param s value
+     * @return this matrix
+     */
+    public Matrix fill(double s) {
+        invalidate();
+        for (int i = 0; i < rows; i++) {
+            int a = offset + i * ld;
+            for (int j = 0; j < columns; j++) {
+                data[a + j] = s;
             }
-            for (int i = 0; i < rows; i++) {
-                double[] Arowi = matrix[i];
-                double s = 0;
-                for (int k = 0; k < columns; k++) {
-                    s += Arowi[k] * Bcolj[k];
-                }
-                C[i][j] = s;
+        }
+        return this;
+    }
+
+    /**
+     * Matrix-vector product, y = matrix * x
+     *
+     * @param x vector with as many elements as the matrix has columns
+     * @param y vector with as many elements as the matrix has rows, overwritten
+     */
+    public void mult(double[] x, double[] y) {
+        if (x.length < columns || y.length < rows) {
+            throw new IllegalArgumentException("Vector dimensions must agree.");
+        }
+        for (int i = 0; i < rows; i++) {
+            int a = offset + i * ld;
+            double s = 0.0;
+            for (int j = 0; j < columns; j++) {
+                s += data[a + j] * x[j];
             }
+            y[i] = s;
         }
-        return X;
+    }
+
+    /**
+     * @return this matrix, it is dense already.
+     */
+    public Matrix toDense() {
+        return this;
     }
 
     /**
      * Solve matrix*X = other
+     * <p/>
+     * A square matrix that is exactly symmetric, positive definite and not
+     * nearly singular is solved with its Cholesky factor, any other with LU,
+     * which throws for nearly singular matrices. Symmetry is not rounded: a
+     * computed product such as B'*B is usually not bitwise symmetric and
+     * takes the LU path.
      *
      * @param other right hand side
      * @return solution if matrix is square, least squares solution otherwise
+     * @throws RuntimeException Matrix is singular.
      */
     public Matrix solve(Matrix other) {
-        return (rows == columns ? (new LUDecomposition(this)).solve(other) :
-                (new QRDecomposition(this)).solve(other));
+        if (rows != columns) {
+            return qr().solve(other);
+        }
+        return useCholesky() ? chol.solve(other) : lu().solve(other);
+    }
+
+    /**
+     * Solve matrix*X = other into dest, on the same path as {@link #solve(Matrix)}.
+     * Once the factorization is cached and the workspace has grown, this does
+     * not allocate.
+     *
+     * @param other right hand side
+     * @param dest  columns-by-other.columns matrix that receives X, may be other
+     *              when the matrix is square
+     * @return dest
+     */
+    public Matrix solve(Matrix other, Matrix dest) {
+        if (rows != columns) {
+            return qr().solve(other, dest);
+        }
+        return useCholesky() ? chol.solve(other, dest) : lu().solve(other, dest);
     }
 
     /**
      * Matrix inverse or pseudoinverse
+     * <p/>
+     * Square matrices take the Cholesky or the LU path as in {@link #solve(Matrix)}.
      *
      * @return inverse(matrix) if matrix is square, pseudoinverse otherwise.
+     * @throws RuntimeException Matrix is singular.
      */
     public Matrix inverse() {
+        if (incremental != null) {
+            return incremental.inverse();
+        }
+        if (rows == columns) {
+            return useCholesky() ? chol.inverse() : lu().inverse();
+        }
         return solve(identity(rows, rows));
     }
 
+    /**
+     * Solve and invert with the Cholesky factor? Only when it is no closer to
+     * singular than LU accepts, so both paths reject the same matrices.
+     */
+    private boolean useCholesky() {
+        return isSPD() && chol.isNonSingular();
+    }
+
+    /**
+     * Right division, solve X*other = matrix
+     *
+     * @param other right hand divisor
+     * @return matrix * inverse(other) if other is square, least squares solution otherwise
+     * @throws IllegalArgumentException Matrix column dimensions must agree.
+     */
+    public Matrix divide(Matrix other) {
+        if (other.rows == other.columns) {
+            return other.lu().solveRight(this);
+        }
+        // X*B = A  <=>  B'*X' = A'
+        return new QRDecomposition(other.transpose()).solve(transpose()).transpose();
+    }
+
     /**
      * Matrix determinant
      *
      * @return determinant
      */
     public double det() {
-        return new LUDecomposition(this).det();
+        if (incremental != null) {
+            return incremental.det();
+        }
+        if (rows == columns && isSPD()) {
+            return chol.det();
+        }
+        return lu().det();
     }
 
     /**
@@ -309,7 +784,7 @@ public class Matrix implements Cloneable, Serializable {
     public double trace() {
         double t = 0;
         for (int i = 0; i < Math.min(rows, columns); i++) {
-            t += matrix[i][i];
+            t += data[offset + i * ld + i];
         }
         return t;
     }
@@ -323,11 +798,9 @@ public class Matrix implements Cloneable, Serializable {
      */
     public static Matrix random(int rows, int columns) {
         Matrix A = new Matrix(rows, columns);
-        double[][] X = A.matrix();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                X[i][j] = Math.random();
-            }
+        double[] X = A.data;
+        for (int i = 0; i < X.length; i++) {
+            X[i] = Math.random();
         }
         return A;
     }
@@ -341,15 +814,84 @@ public class Matrix implements Cloneable, Serializable {
      */
     public static Matrix identity(int rows, int columns) {
         Matrix A = new Matrix(rows, columns);
-        double[][] X = A.matrix();
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < columns; j++) {
-                X[i][j] = (i == j ? 1.0 : 0.0);
-            }
+        double[] X = A.data;
+        for (int i = 0; i < Math.min(rows, columns); i++) {
+            X[i * columns + i] = 1.0;
         }
         return A;
     }
 
+    /**
+     * C = matrix op (s, other), row blocks run in parallel once the matrix is large enough.
+     * Each element of C depends only on the same element of the operands, so C may be
+     * this matrix or other.
+     */
+    private void elementwise(final int op, final Matrix other, final double s, final Matrix C) {
+        C.invalidate();
+        if (!Parallel.shouldSplit((long) rows * columns)) {
+            elementwise(op, other, s, C, 0, rows);
+            return;
+        }
+        Parallel.forRange(0, rows, columns, 64, new Parallel.RangeTask() {
+            public void run(int from, int to) {
+                elementwise(op, other, s, C, from, to);
+            }
+        });
+    }
+
+    private void elementwise(int op, Matrix other, double s, Matrix C, int from, int to) {
+        double[] c = C.data;
+        double[] b = other == null ? null : other.data;
+        // Rows without padding between them form one run for the kernels.
+        int len = columns, count = to - from;
+        if (ld == columns && C.ld == columns && (other == null || other.ld == columns)) {
+            len = count * columns;
+            count = 1;
+        }
+        for (int r = 0; r < count; r++) {
+            int i = from + r;
+            int a = offset + i * ld;
+            int bi = other == null ? 0 : other.offset + i * other.ld;
+            int ci = C.offset + i * C.ld;
+            switch (op) {
+                case PLUS:
+                    Kernels.add(len, data, a, b, bi, c, ci);
+                    break;
+                case MINUS:
+                    Kernels.sub(len, data, a, b, bi, c, ci);
+                    break;
+                case SCALE:
+                    Kernels.scale(len, s, data, a, c, ci);
+                    break;
+                case AXPY:
+                    Kernels.axpy(len, s, data, a, b, bi, c, ci);
+                    break;
+                default:
+                    Kernels.neg(len, data, a, c, ci);
+            }
+        }
+    }
+
+    /**
+     * Destinations of transpose and mult are written while the operands are still
+     * being read, so they must not share a backing array.
+     */
+    private static void checkNoAlias(Matrix dest, Matrix operand) {
+        if (dest.data == operand.data) {
+            throw new IllegalArgumentException("Destination must not share storage with an operand.");
+        }
+    }
+
+    /**
+     * Bounds check that the flat array can not do on its own: a column past
+     * the end of one row would silently read the next one.
+     */
+    private void checkIndex(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= columns) {
+            throw new ArrayIndexOutOfBoundsException("Matrix index (" + i + ", " + j + ")");
+        }
+    }
+
     /**
      * Check if size(matrix) == size(other) *
      */
@@ -0,0 +1,583 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Parallel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A batch of count small n-by-n matrices in structure-of-arrays layout.
+ * <p/>
+ * Element (i, j) of matrix b lives at data[(i * n + j) * count + b], so the
+ * same element of consecutive matrices is contiguous and every kernel loops
+ * over the batch index innermost. Determinants, inverses and solves work on
+ * the whole batch in one pass without allocating per matrix: n = 2, 3 and 4
+ * use unrolled closed-form (cofactor) kernels for all three, larger n a
+ * partially pivoted LU per matrix in a scratch array shared by the chunk.
+ * Large batches are split into chunks that run on the {@link Parallel} pool.
+ * <p/>
+ * A singular matrix does not stop the batch: its results are NaN and it is
+ * counted in the value returned by {@link #inverse} and {@link #solve}.
+ * The closed-form kernels do not pivot, so for badly conditioned 2x2 to 4x4
+ * matrices they can lose more accuracy than {@link LUDecomposition}.
+ */
+public class MatrixBatch {
+
+    /**
+     * Matrices per parallel chunk at least.
+     */
+    private static final int GRAIN = 256;
+
+    private final double[] data;
+    private final int n, count;
+
+    /**
+     * Construct a batch of count n-by-n zero matrices.
+     *
+     * @param n     Order of the matrices.
+     * @param count Number of matrices.
+     */
+    public MatrixBatch(int n, int count) {
+        this(new double[n * n * count], n, count);
+    }
+
+    /**
+     * Wrap an array in structure-of-arrays layout without copying.
+     *
+     * @param data  Elements, data[(i * n + j) * count + b] is element (i, j) of matrix b.
+     * @param n     Order of the matrices.
+     * @param count Number of matrices.
+     * @throws IllegalArgumentException Array is too short.
+     */
+    public MatrixBatch(double[] data, int n, int count) {
+        if (n < 1 || count < 0) {
+            throw new IllegalArgumentException("Batch dimensions must be positive.");
+        }
+        if (data.length < n * n * count) {
+            throw new IllegalArgumentException("Array is shorter than n * n * count.");
+        }
+        this.data = data;
+        this.n = n;
+        this.count = count;
+    }
+
+    /**
+     * @return order of the matrices.
+     */
+    public int order() {
+        return n;
+    }
+
+    /**
+     * @return number of matrices.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the backing array, see {@link #MatrixBatch(double[], int, int)}.
+     */
+    public double[] data() {
+        return data;
+    }
+
+    public double get(int b, int i, int j) {
+        return data[index(b, i, j)];
+    }
+
+    public void set(int b, int i, int j, double s) {
+        data[index(b, i, j)] = s;
+    }
+
+    /**
+     * Copy a matrix into slot b.
+     *
+     * @param b Batch index.
+     * @param A n-by-n matrix.
+     */
+    public void set(int b, Matrix A) {
+        if (A.rows() != n || A.columns() != n) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                data[index(b, i, j)] = A.get(i, j);
+            }
+        }
+    }
+
+    /**
+     * Copy slot b out as a matrix.
+     *
+     * @param b Batch index.
+     * @return new n-by-n matrix.
+     */
+    public Matrix get(int b) {
+        Matrix X = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                X.set(i, j, data[index(b, i, j)]);
+            }
+        }
+        return X;
+    }
+
+    /**
+     * Determinants of all matrices.
+     *
+     * @param det receives det(matrix b) at det[b], at least count long.
+     */
+    public void det(final double[] det) {
+        if (det.length < count) {
+            throw new IllegalArgumentException("Output is shorter than the batch.");
+        }
+        run(new Parallel.RangeTask() {
+            public void run(int from, int to) {
+                switch (n) {
+                    case 1:
+                        System.arraycopy(data, from, det, from, to - from);
+                        break;
+                    case 2:
+                        det2(from, to, det);
+                        break;
+                    case 3:
+                        det3(from, to, det);
+                        break;
+                    case 4:
+                        det4(from, to, det, null);
+                        break;
+                    default:
+                        general(from, to, det, null, null, null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Inverses of all matrices.
+     *
+     * @param dest batch of the same order and count that receives the inverses,
+     *             may be this batch.
+     * @return number of singular matrices, whose inverses are NaN.
+     */
+    public int inverse(final MatrixBatch dest) {
+        checkSameShape(dest);
+        final AtomicInteger singular = new AtomicInteger();
+        run(new Parallel.RangeTask() {
+            public void run(int from, int to) {
+                int s;
+                switch (n) {
+                    case 1:
+                        s = inverse1(from, to, dest.data);
+                        break;
+                    case 2:
+                        s = inverse2(from, to, dest.data);
+                        break;
+                    case 3:
+                        s = inverse3(from, to, dest.data);
+                        break;
+                    case 4:
+                        s = det4(from, to, null, dest.data);
+                        break;
+                    default:
+                        s = general(from, to, null, dest.data, null, null);
+                }
+                singular.addAndGet(s);
+            }
+        });
+        return singular.get();
+    }
+
+    /**
+     * Solve A_b * x_b = r_b for every matrix, one right hand side each.
+     *
+     * @param rhs right hand sides, element i of r_b at rhs[i * count + b].
+     * @param x   receives the solutions in the same layout, may be rhs.
+     * @return number of singular matrices, whose solutions are NaN.
+     */
+    public int solve(final double[] rhs, final double[] x) {
+        if (rhs.length < n * count || x.length < n * count) {
+            throw new IllegalArgumentException("Vector dimensions must agree.");
+        }
+        final AtomicInteger singular = new AtomicInteger();
+        run(new Parallel.RangeTask() {
+            public void run(int from, int to) {
+                int s;
+                switch (n) {
+                    case 2:
+                        s = solve2(from, to, rhs, x);
+                        break;
+                    case 3:
+                        s = solve3(from, to, rhs, x);
+                        break;
+                    case 4:
+                        s = solve4(from, to, rhs, x);
+                        break;
+                    default:
+                        s = general(from, to, null, null, rhs, x);
+                }
+                singular.addAndGet(s);
+            }
+        });
+        return singular.get();
+    }
+
+    private void run(Parallel.RangeTask task) {
+        long work = (long) n * n * n;
+        if (!Parallel.shouldSplit(work * count)) {
+            task.run(0, count);
+        } else {
+            Parallel.forRange(0, count, work, GRAIN, task);
+        }
+    }
+
+    private void det2(int from, int to, double[] det) {
+        double[] a = data;
+        int c = count;
+        for (int b = from; b < to; b++) {
+            det[b] = a[b] * a[3 * c + b] - a[c + b] * a[2 * c + b];
+        }
+    }
+
+    private void det3(int from, int to, double[] det) {
+        double[] a = data;
+        int c = count;
+        for (int b = from; b < to; b++) {
+            double a00 = a[b], a01 = a[c + b], a02 = a[2 * c + b];
+            double a10 = a[3 * c + b], a11 = a[4 * c + b], a12 = a[5 * c + b];
+            double a20 = a[6 * c + b], a21 = a[7 * c + b], a22 = a[8 * c + b];
+            det[b] = a00 * (a11 * a22 - a12 * a21)
+                    + a01 * (a12 * a20 - a10 * a22)
+                    + a02 * (a10 * a21 - a11 * a20);
+        }
+    }
+
+    private int inverse1(int from, int to, double[] x) {
+        int singular = 0;
+        for (int b = from; b < to; b++) {
+            double d = data[b];
+            if (d == 0.0) {
+                singular++;
+            }
+            x[b] = d == 0.0 ? Double.NaN : 1.0 / d;
+        }
+        return singular;
+    }
+
+    private int inverse2(int from, int to, double[] x) {
+        double[] a = data;
+        int c = count, singular = 0;
+        for (int b = from; b < to; b++) {
+            double a00 = a[b], a01 = a[c + b], a10 = a[2 * c + b], a11 = a[3 * c + b];
+            double d = a00 * a11 - a01 * a10;
+            if (d == 0.0) {
+                singular++;
+            }
+            double s = d == 0.0 ? Double.NaN : 1.0 / d;
+            x[b] = a11 * s;
+            x[c + b] = -a01 * s;
+            x[2 * c + b] = -a10 * s;
+            x[3 * c + b] = a00 * s;
+        }
+        return singular;
+    }
+
+    private int inverse3(int from, int to, double[] x) {
+        double[] a = data;
+        int c = count, singular = 0;
+        for (int b = from; b < to; b++) {
+            double a00 = a[b], a01 = a[c + b], a02 = a[2 * c + b];
+            double a10 = a[3 * c + b], a11 = a[4 * c + b], a12 = a[5 * c + b];
+            double a20 = a[6 * c + b], a21 = a[7 * c + b], a22 = a[8 * c + b];
+            double c00 = a11 * a22 - a12 * a21;
+            double c01 = a12 * a20 - a10 * a22;
+            double c02 = a10 * a21 - a11 * a20;
+            double d = a00 * c00 + a01 * c01 + a02 * c02;
+            if (d == 0.0) {
+                singular++;
+            }
+            double s = d == 0.0 ? Double.NaN : 1.0 / d;
+            x[b] = c00 * s;
+            x[c + b] = (a02 * a21 - a01 * a22) * s;
+            x[2 * c + b] = (a01 * a12 - a02 * a11) * s;
+            x[3 * c + b] = c01 * s;
+            x[4 * c + b] = (a00 * a22 - a02 * a20) * s;
+            x[5 * c + b] = (a02 * a10 - a00 * a12) * s;
+            x[6 * c + b] = c02 * s;
+            x[7 * c + b] = (a01 * a20 - a00 * a21) * s;
+            x[8 * c + b] = (a00 * a11 - a01 * a10) * s;
+        }
+        return singular;
+    }
+
+    /**
+     * 4x4 determinants and, when x is not null, inverses, both from the twelve
+     * 2x2 minors of the top two and bottom two rows (Laplace expansion).
+     *
+     * @return number of singular matrices.
+     */
+    private int det4(int from, int to, double[] det, double[] x) {
+        double[] a = data;
+        int c = count, singular = 0;
+        for (int b = from; b < to; b++) {
+            double a00 = a[b], a01 = a[c + b], a02 = a[2 * c + b], a03 = a[3 * c + b];
+            double a10 = a[4 * c + b], a11 = a[5 * c + b], a12 = a[6 * c + b], a13 = a[7 * c + b];
+            double a20 = a[8 * c + b], a21 = a[9 * c + b], a22 = a[10 * c + b], a23 = a[11 * c + b];
+            double a30 = a[12 * c + b], a31 = a[13 * c + b], a32 = a[14 * c + b], a33 = a[15 * c + b];
+            double s0 = a00 * a11 - a10 * a01;
+            double s1 = a00 * a12 - a10 * a02;
+            double s2 = a00 * a13 - a10 * a03;
+            double s3 = a01 * a12 - a11 * a02;
+            double s4 = a01 * a13 - a11 * a03;
+            double s5 = a02 * a13 - a12 * a03;
+            double c5 = a22 * a33 - a32 * a23;
+            double c4 = a21 * a33 - a31 * a23;
+            double c3 = a21 * a32 - a31 * a22;
+            double c2 = a20 * a33 - a30 * a23;
+            double c1 = a20 * a32 - a30 * a22;
+            double c0 = a20 * a31 - a30 * a21;
+            double d = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+            if (det != null) {
+                det[b] = d;
+                continue;
+            }
+            if (d == 0.0) {
+                singular++;
+            }
+            double s = d == 0.0 ? Double.NaN : 1.0 / d;
+            x[b] = (a11 * c5 - a12 * c4 + a13 * c3) * s;
+            x[c + b] = (-a01 * c5 + a02 * c4 - a03 * c3) * s;
+            x[2 * c + b] = (a31 * s5 - a32 * s4 + a33 * s3) * s;
+            x[3 * c + b] = (-a21 * s5 + a22 * s4 - a23 * s3) * s;
+            x[4 * c + b] = (-a10 * c5 + a12 * c2 - a13 * c1) * s;
+            x[5 * c + b] = (a00 * c5 - a02 * c2 + a03 * c1) * s;
+            x[6 * c + b] = (-a30 * s5 + a32 * s2 - a33 * s1) * s;
+            x[7 * c + b] = (a20 * s5 - a22 * s2 + a23 * s1) * s;
+            x[8 * c + b] = (a10 * c4 - a11 * c2 + a13 * c0) * s;
+            x[9 * c + b] = (-a00 * c4 + a01 * c2 - a03 * c0) * s;
+            x[10 * c + b] = (a30 * s4 - a31 * s2 + a33 * s0) * s;
+            x[11 * c + b] = (-a20 * s4 + a21 * s2 - a23 * s0) * s;
+            x[12 * c + b] = (-a10 * c3 + a11 * c1 - a12 * c0) * s;
+            x[13 * c + b] = (a00 * c3 - a01 * c1 + a02 * c0) * s;
+            x[14 * c + b] = (-a30 * s3 + a31 * s1 - a32 * s0) * s;
+            x[15 * c + b] = (a20 * s3 - a21 * s1 + a22 * s0) * s;
+        }
+        return singular;
+    }
+
+    private int solve2(int from, int to, double[] r, double[] x) {
+        double[] a = data;
+        int c = count, singular = 0;
+        for (int b = from; b < to; b++) {
+            double a00 = a[b], a01 = a[c + b], a10 = a[2 * c + b], a11 = a[3 * c + b];
+            double r0 = r[b], r1 = r[c + b];
+            double d = a00 * a11 - a01 * a10;
+            if (d == 0.0) {
+                singular++;
+            }
+            double s = d == 0.0 ? Double.NaN : 1.0 / d;
+            x[b] = (a11 * r0 - a01 * r1) * s;
+            x[c + b] = (a00 * r1 - a10 * r0) * s;
+        }
+        return singular;
+    }
+
+    private int solve3(int from, int to, double[] r, double[] x) {
+        double[] a = data;
+        int c = count, singular = 0;
+        for (int b = from; b < to; b++) {
+            double a00 = a[b], a01 = a[c + b], a02 = a[2 * c + b];
+            double a10 = a[3 * c + b], a11 = a[4 * c + b], a12 = a[5 * c + b];
+            double a20 = a[6 * c + b], a21 = a[7 * c + b], a22 = a[8 * c + b];
+            double r0 = r[b], r1 = r[c + b], r2 = r[2 * c + b];
+            double c00 = a11 * a22 - a12 * a21;
+            double c01 = a12 * a20 - a10 * a22;
+            double c02 = a10 * a21 - a11 * a20;
+            double d = a00 * c00 + a01 * c01 + a02 * c02;
+            if (d == 0.0) {
+                singular++;
+            }
+            double s = d == 0.0 ? Double.NaN : 1.0 / d;
+            // x = adj(A) * r / det(A)
+            x[b] = (c00 * r0 + (a02 * a21 - a01 * a22) * r1 + (a01 * a12 - a02 * a11) * r2) * s;
+            x[c + b] = (c01 * r0 + (a00 * a22 - a02 * a20) * r1 + (a02 * a10 - a00 * a12) * r2) * s;
+            x[2 * c + b] = (c02 * r0 + (a01 * a20 - a00 * a21) * r1 + (a00 * a11 - a01 * a10) * r2) * s;
+        }
+        return singular;
+    }
+
+    /**
+     * 4x4 solutions adj(A) * r / det(A), with the adjugate from the same 2x2
+     * minors as {@link #det4}.
+     *
+     * @return number of singular matrices.
+     */
+    private int solve4(int from, int to, double[] r, double[] x) {
+        double[] a = data;
+        int c = count, singular = 0;
+        for (int b = from; b < to; b++) {
+            double a00 = a[b], a01 = a[c + b], a02 = a[2 * c + b], a03 = a[3 * c + b];
+            double a10 = a[4 * c + b], a11 = a[5 * c + b], a12 = a[6 * c + b], a13 = a[7 * c + b];
+            double a20 = a[8 * c + b], a21 = a[9 * c + b], a22 = a[10 * c + b], a23 = a[11 * c + b];
+            double a30 = a[12 * c + b], a31 = a[13 * c + b], a32 = a[14 * c + b], a33 = a[15 * c + b];
+            double r0 = r[b], r1 = r[c + b], r2 = r[2 * c + b], r3 = r[3 * c + b];
+            double s0 = a00 * a11 - a10 * a01;
+            double s1 = a00 * a12 - a10 * a02;
+            double s2 = a00 * a13 - a10 * a03;
+            double s3 = a01 * a12 - a11 * a02;
+            double s4 = a01 * a13 - a11 * a03;
+            double s5 = a02 * a13 - a12 * a03;
+            double c5 = a22 * a33 - a32 * a23;
+            double c4 = a21 * a33 - a31 * a23;
+            double c3 = a21 * a32 - a31 * a22;
+            double c2 = a20 * a33 - a30 * a23;
+            double c1 = a20 * a32 - a30 * a22;
+            double c0 = a20 * a31 - a30 * a21;
+            double d = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+            if (d == 0.0) {
+                singular++;
+            }
+            double s = d == 0.0 ? Double.NaN : 1.0 / d;
+            x[b] = ((a11 * c5 - a12 * c4 + a13 * c3) * r0 + (-a01 * c5 + a02 * c4 - a03 * c3) * r1
+                    + (a31 * s5 - a32 * s4 + a33 * s3) * r2 + (-a21 * s5 + a22 * s4 - a23 * s3) * r3) * s;
+            x[c + b] = ((-a10 * c5 + a12 * c2 - a13 * c1) * r0 + (a00 * c5 - a02 * c2 + a03 * c1) * r1
+                    + (-a30 * s5 + a32 * s2 - a33 * s1) * r2 + (a20 * s5 - a22 * s2 + a23 * s1) * r3) * s;
+            x[2 * c + b] = ((a10 * c4 - a11 * c2 + a13 * c0) * r0 + (-a00 * c4 + a01 * c2 - a03 * c0) * r1
+                    + (a30 * s4 - a31 * s2 + a33 * s0) * r2 + (-a20 * s4 + a21 * s2 - a23 * s0) * r3) * s;
+            x[3 * c + b] = ((-a10 * c3 + a11 * c1 - a12 * c0) * r0 + (a00 * c3 - a01 * c1 + a02 * c0) * r1
+                    + (-a30 * s3 + a31 * s1 - a32 * s0) * r2 + (a20 * s3 - a21 * s1 + a22 * s0) * r3) * s;
+        }
+        return singular;
+    }
+
+    /**
+     * Any order: gather each matrix into a row-major scratch array, factor it
+     * with partial pivoting and produce whichever of det, inverse (x) or
+     * solution (solution, from rhs) is not null.
+     *
+     * @return number of singular matrices.
+     */
+    private int general(int from, int to, double[] det, double[] x, double[] rhs, double[] solution) {
+        int c = count, nn = n * n, singular = 0;
+        double[] lu = new double[nn];
+        double[] col = new double[n];
+        int[] piv = new int[n];
+        for (int b = from; b < to; b++) {
+            for (int k = 0; k < nn; k++) {
+                lu[k] = data[k * c + b];
+            }
+            int sign = 1;
+            boolean isSingular = false;
+            for (int j = 0; j < n; j++) {
+                int p = j;
+                double max = Math.abs(lu[j * n + j]);
+                for (int i = j + 1; i < n; i++) {
+                    double v = Math.abs(lu[i * n + j]);
+                    if (v > max) {
+                        max = v;
+                        p = i;
+                    }
+                }
+                piv[j] = p;
+                if (p != j) {
+                    for (int k = 0; k < n; k++) {
+                        double t = lu[p * n + k];
+                        lu[p * n + k] = lu[j * n + k];
+                        lu[j * n + k] = t;
+                    }
+                    sign = -sign;
+                }
+                double ujj = lu[j * n + j];
+                if (ujj == 0.0) {
+                    isSingular = true;
+                    continue;
+                }
+                for (int i = j + 1; i < n; i++) {
+                    double lij = lu[i * n + j] /= ujj;
+                    for (int k = j + 1; k < n; k++) {
+                        lu[i * n + k] -= lij * lu[j * n + k];
+                    }
+                }
+            }
+
+            if (det != null) {
+                double d = sign;
+                for (int j = 0; j < n; j++) {
+                    d *= lu[j * n + j];
+                }
+                det[b] = d;
+                continue;
+            }
+            if (isSingular) {
+                singular++;
+            }
+            if (x != null) {
+                for (int j = 0; j < n; j++) {
+                    for (int i = 0; i < n; i++) {
+                        col[i] = i == j ? 1.0 : 0.0;
+                    }
+                    substitute(lu, piv, col, isSingular);
+                    for (int i = 0; i < n; i++) {
+                        x[(i * n + j) * c + b] = col[i];
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++) {
+                    col[i] = rhs[i * c + b];
+                }
+                substitute(lu, piv, col, isSingular);
+                for (int i = 0; i < n; i++) {
+                    solution[i * c + b] = col[i];
+                }
+            }
+        }
+        return singular;
+    }
+
+    /**
+     * Overwrite v with inverse(P*L*U)*v, or NaN when the factorization is singular.
+     */
+    private void substitute(double[] lu, int[] piv, double[] v, boolean isSingular) {
+        if (isSingular) {
+            for (int i = 0; i < n; i++) {
+                v[i] = Double.NaN;
+            }
+            return;
+        }
+        for (int j = 0; j < n; j++) {
+            int p = piv[j];
+            if (p != j) {
+                double t = v[p];
+                v[p] = v[j];
+                v[j] = t;
+            }
+        }
+        for (int i = 1; i < n; i++) {
+            double s = v[i];
+            for (int k = 0; k < i; k++) {
+                s -= lu[i * n + k] * v[k];
+            }
+            v[i] = s;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            double s = v[i];
+            for (int k = i + 1; k < n; k++) {
+                s -= lu[i * n + k] * v[k];
+            }
+            v[i] = s / lu[i * n + i];
+        }
+    }
+
+    private int index(int b, int i, int j) {
+        if (b < 0 || b >= count || i < 0 || i >= n || j < 0 || j >= n) {
+            throw new ArrayIndexOutOfBoundsException("Batch index (" + b + ", " + i + ", " + j + ")");
+        }
+        return (i * n + j) * count + b;
+    }
+
+    private void checkSameShape(MatrixBatch other) {
+        if (other.n != n || other.count != count) {
+            throw new IllegalArgumentException("Batch dimensions must agree.");
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lazy matrix expression, built from {@link Matrix} leaves and evaluated only
+ * by {@link #evaluate()}.
+ * <p/>
+ * Building the tree costs nothing but dimension checks. On evaluation:
+ * <ul>
+ * <li>sums, differences, scalings and negations are flattened into one linear
+ * combination and written in a single pass, without intermediate matrices;</li>
+ * <li>a product term of a linear combination is accumulated straight into the
+ * result with {@link Matrix#multAdd};</li>
+ * <li>products of three or more factors are evaluated in the order that needs
+ * the fewest multiply-adds (matrix-chain dynamic programming);</li>
+ * <li>inverse(B)*X becomes B.solve(X) and X*inverse(B) becomes X.divide(B), so no
+ * inverse is formed inside a product.</li>
+ * </ul>
+ */
+public abstract class MatrixExpression {
+
+    final int rows, columns;
+
+    MatrixExpression(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * Leaf expression. The matrix is read when the expression is evaluated, not
+     * when it is built.
+     *
+     * @param A matrix
+     * @return expression standing for A
+     */
+    public static MatrixExpression of(Matrix A) {
+        return new Leaf(A);
+    }
+
+    /**
+     * @return the number of rows of the result.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of columns of the result.
+     */
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * @param other another expression
+     * @return this + other
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     */
+    public MatrixExpression plus(MatrixExpression other) {
+        checkDimensions(other);
+        return Linear.of(this, 1.0).add(other, 1.0);
+    }
+
+    /**
+     * @param other another expression
+     * @return this - other
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     */
+    public MatrixExpression minus(MatrixExpression other) {
+        checkDimensions(other);
+        return Linear.of(this, 1.0).add(other, -1.0);
+    }
+
+    /**
+     * @param s scalar
+     * @return s * this
+     */
+    public MatrixExpression times(double s) {
+        return Linear.of(this, s);
+    }
+
+    /**
+     * @return -this
+     */
+    public MatrixExpression uminus() {
+        return Linear.of(this, -1.0);
+    }
+
+    /**
+     * @param other another expression
+     * @return this * other
+     * @throws IllegalArgumentException Matrix inner dimensions must agree.
+     */
+    public MatrixExpression mult(MatrixExpression other) {
+        if (other.rows != columns) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        Product p = new Product(rows, other.columns);
+        p.append(this);
+        p.append(other);
+        return p;
+    }
+
+    /**
+     * @return this'
+     */
+    public MatrixExpression transpose() {
+        return new Transpose(this);
+    }
+
+    /**
+     * inverse(inverse(A)) is not folded to A: it is computed, so a singular A
+     * throws as it does when inverted eagerly.
+     *
+     * @return inverse(this), or the pseudoinverse when this is not square.
+     */
+    public MatrixExpression inverse() {
+        return new Inverse(this);
+    }
+
+    /**
+     * Compute the value of the expression.
+     *
+     * @return new matrix, never shared with a leaf.
+     */
+    public Matrix evaluate() {
+        Matrix X = compute();
+        return this instanceof Leaf ? X.copy() : X;
+    }
+
+    /**
+     * Value of this node, may be a leaf matrix itself.
+     */
+    abstract Matrix compute();
+
+    private void checkDimensions(MatrixExpression other) {
+        if (other.rows != rows || other.columns != columns) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+    }
+
+    static final class Leaf extends MatrixExpression {
+        final Matrix matrix;
+
+        Leaf(Matrix matrix) {
+            super(matrix.rows(), matrix.columns());
+            this.matrix = matrix;
+        }
+
+        Matrix compute() {
+            return matrix;
+        }
+    }
+
+    static final class Transpose extends MatrixExpression {
+        final MatrixExpression operand;
+
+        Transpose(MatrixExpression operand) {
+            super(operand.columns, operand.rows);
+            this.operand = operand;
+        }
+
+        public MatrixExpression transpose() {
+            return operand;
+        }
+
+        Matrix compute() {
+            if (operand instanceof Product) {
+                // (A*B*C)' = C'*B'*A', the chain order is then chosen on the reversed product.
+                List<MatrixExpression> factors = ((Product) operand).factors;
+                Product p = new Product(rows, columns);
+                for (int i = factors.size() - 1; i >= 0; i--) {
+                    p.append(factors.get(i).transpose());
+                }
+                return p.compute();
+            }
+            return operand.compute().transpose();
+        }
+    }
+
+    static final class Inverse extends MatrixExpression {
+        final MatrixExpression operand;
+
+        Inverse(MatrixExpression operand) {
+            super(operand.columns, operand.rows);
+            this.operand = operand;
+        }
+
+        public MatrixExpression transpose() {
+            // inverse(A)' = inverse(A'), which keeps the inverse visible to Product.
+            return new Inverse(operand.transpose());
+        }
+
+        Matrix compute() {
+            return operand.compute().inverse();
+        }
+    }
+
+    /**
+     * Linear combination sum(coefficients[k] * terms[k]) of same-sized expressions.
+     */
+    static final class Linear extends MatrixExpression {
+        final List<MatrixExpression> terms = new ArrayList<MatrixExpression>();
+        double[] coefficients = new double[4];
+
+        Linear(int rows, int columns) {
+            super(rows, columns);
+        }
+
+        static Linear of(MatrixExpression e, double s) {
+            return new Linear(e.rows, e.columns).add(e, s);
+        }
+
+        /**
+         * Append s * e, splicing in the terms of e when it is itself linear.
+         */
+        Linear add(MatrixExpression e, double s) {
+            if (e instanceof Linear) {
+                Linear l = (Linear) e;
+                for (int k = 0; k < l.terms.size(); k++) {
+                    add(l.terms.get(k), s * l.coefficients[k]);
+                }
+                return this;
+            }
+            int k = terms.size();
+            if (k == coefficients.length) {
+                coefficients = Arrays.copyOf(coefficients, 2 * k);
+            }
+            terms.add(e);
+            coefficients[k] = s;
+            return this;
+        }
+
+        Matrix compute() {
+            int count = terms.size();
+            final double[][] data = new double[count][];
+            final int[] offsets = new int[count], lds = new int[count];
+            final double[] alphas = new double[count];
+            List<Product> products = new ArrayList<Product>();
+            List<Double> productAlphas = new ArrayList<Double>();
+            int n = 0;
+            for (int k = 0; k < count; k++) {
+                MatrixExpression e = terms.get(k);
+                if (e instanceof Product && ((Product) e).canAccumulate()) {
+                    products.add((Product) e);
+                    productAlphas.add(coefficients[k]);
+                    continue;
+                }
+                Matrix M = e.compute();
+                data[n] = M.data();
+                offsets[n] = M.offset();
+                lds[n] = M.ld();
+                alphas[n] = coefficients[k];
+                n++;
+            }
+
+            final Matrix X = new Matrix(rows, columns);
+            final int dense = n;
+            if (dense > 0) {
+                if (!Parallel.shouldSplit((long) rows * columns * dense)) {
+                    combine(X, dense, data, offsets, lds, alphas, 0, rows);
+                } else {
+                    Parallel.forRange(0, rows, (long) columns * dense, 64, new Parallel.RangeTask() {
+                        public void run(int from, int to) {
+                            combine(X, dense, data, offsets, lds, alphas, from, to);
+                        }
+                    });
+                }
+            }
+            for (int k = 0; k < products.size(); k++) {
+                products.get(k).accumulate(productAlphas.get(k), X);
+            }
+            return X;
+        }
+
+        /**
+         * Rows from..to-1 of X = sum(alphas[k] * term k). Each row of X is built
+         * while it is in cache, so memory is swept once per operand.
+         */
+        private void combine(Matrix X, int n, double[][] data, int[] offsets, int[] lds,
+                             double[] alphas, int from, int to) {
+            double[] x = X.data();
+            for (int i = from; i < to; i++) {
+                int xi = i * columns;
+                double[] a = data[0];
+                int ai = offsets[0] + i * lds[0];
+                double s = alphas[0];
+                for (int j = 0; j < columns; j++) {
+                    x[xi + j] = s * a[ai + j];
+                }
+                for (int k = 1; k < n; k++) {
+                    a = data[k];
+                    ai = offsets[k] + i * lds[k];
+                    s = alphas[k];
+                    for (int j = 0; j < columns; j++) {
+                        x[xi + j] += s * a[ai + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Product of two or more factors.
+     */
+    static final class Product extends MatrixExpression {
+        final List<MatrixExpression> factors = new ArrayList<MatrixExpression>();
+
+        Product(int rows, int columns) {
+            super(rows, columns);
+        }
+
+        /**
+         * Append a factor, splicing in the factors of e when it is itself a product.
+         */
+        void append(MatrixExpression e) {
+            if (e instanceof Product) {
+                factors.addAll(((Product) e).factors);
+            } else {
+                factors.add(e);
+            }
+        }
+
+        /**
+         * Whether the last multiplication can be fused into a destination, that
+         * is, whether no inverse has to be turned into a solve.
+         */
+        boolean canAccumulate() {
+            for (MatrixExpression f : factors) {
+                if (f instanceof Inverse) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Matrix compute() {
+            return evaluate(factors);
+        }
+
+        /**
+         * X = X + alpha * this, the outermost multiplication done by {@link Matrix#multAdd}.
+         */
+        void accumulate(double alpha, Matrix X) {
+            Matrix[] m = computeFactors(factors);
+            int[][] split = chainOrder(m);
+            int s = split[0][m.length - 1];
+            X.multAdd(alpha, multiply(m, split, 0, s), multiply(m, split, s + 1, m.length - 1));
+        }
+
+        /**
+         * Inverses are consumed from the right: inverse(B)*R is B.solve(R), and a
+         * trailing inverse(B) after L is L.divide(B).
+         */
+        private static Matrix evaluate(List<MatrixExpression> factors) {
+            int last = -1;
+            for (int k = factors.size() - 1; k >= 0 && last < 0; k--) {
+                if (factors.get(k) instanceof Inverse) {
+                    last = k;
+                }
+            }
+            if (last < 0) {
+                Matrix[] m = computeFactors(factors);
+                return multiply(m, chainOrder(m), 0, m.length - 1);
+            }
+            Matrix B = ((Inverse) factors.get(last)).operand.compute();
+            List<MatrixExpression> left = factors.subList(0, last);
+            List<MatrixExpression> right = factors.subList(last + 1, factors.size());
+            if (right.isEmpty()) {
+                return left.isEmpty() ? B.inverse() : evaluate(left).divide(B);
+            }
+            Matrix V = B.solve(evaluate(right));
+            if (left.isEmpty()) {
+                return V;
+            }
+            List<MatrixExpression> rest = new ArrayList<MatrixExpression>(left);
+            rest.add(new Leaf(V));
+            return evaluate(rest);
+        }
+
+        private static Matrix[] computeFactors(List<MatrixExpression> factors) {
+            Matrix[] m = new Matrix[factors.size()];
+            for (int k = 0; k < m.length; k++) {
+                m[k] = factors.get(k).compute();
+            }
+            return m;
+        }
+
+        /**
+         * Classic O(n^3) matrix-chain order: split[i][j] is the factor after
+         * which the product of factors i..j is divided.
+         */
+        private static int[][] chainOrder(Matrix[] m) {
+            int n = m.length;
+            long[] p = new long[n + 1];
+            for (int k = 0; k < n; k++) {
+                p[k] = m[k].rows();
+            }
+            p[n] = m[n - 1].columns();
+            long[][] cost = new long[n][n];
+            int[][] split = new int[n][n];
+            for (int len = 2; len <= n; len++) {
+                for (int i = 0; i + len - 1 < n; i++) {
+                    int j = i + len - 1;
+                    cost[i][j] = Long.MAX_VALUE;
+                    for (int s = i; s < j; s++) {
+                        long c = cost[i][s] + cost[s + 1][j] + p[i] * p[s + 1] * p[j + 1];
+                        if (c < cost[i][j]) {
+                            cost[i][j] = c;
+                            split[i][j] = s;
+                        }
+                    }
+                }
+            }
+            return split;
+        }
+
+        private static Matrix multiply(Matrix[] m, int[][] split, int i, int j) {
+            if (i == j) {
+                return m[i];
+            }
+            int s = split[i][j];
+            return multiply(m, split, i, s).mult(multiply(m, split, s + 1, j));
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Compact binary format for matrices and their factorizations.
+ * <p/>
+ * Every record starts with a 24 byte header, all fields little-endian:
+ * <pre>
+ * offset  size  field
+ *      0     4  magic, the ASCII bytes "MTRX"
+ *      4     2  version, currently 1
+ *      6     1  dtype: 1 = float64, 2 = float32
+ *      7     1  layout: 0 = row-major
+ *      8     1  kind: 0 = matrix, 1 = LU, 2 = QR, 3 = Cholesky
+ *      9     3  reserved, zero
+ *     12     4  rows
+ *     16     4  columns
+ *     20     4  reserved, zero
+ * </pre>
+ * followed by the payload of the kind:
+ * <ul>
+ * <li>matrix: rows * columns elements of dtype;</li>
+ * <li>LU: pivot sign, rows pivot indices (int32), then the rows * columns
+ * combined factors;</li>
+ * <li>QR: block size (int32), then the rows * columns Householder vectors and
+ * R, columns diagonal elements of R and block size * columns block reflector
+ * factors;</li>
+ * <li>Cholesky: 1 if the matrix was symmetric positive definite, else 0
+ * (int32), then the rows * rows factor L only when it was.</li>
+ * </ul>
+ * Arrays move between the heap and the channel through a direct buffer, one
+ * per thread and reused by every call, with bulk puts and gets and no
+ * per-element boxing or object graph.
+ */
+public final class MatrixIO {
+
+    /**
+     * "MTRX" read as a little-endian int.
+     */
+    private static final int MAGIC = 'M' | 'T' << 8 | 'R' << 16 | 'X' << 24;
+    private static final short VERSION = 1;
+    private static final byte FLOAT64 = 1, FLOAT32 = 2;
+    private static final byte ROW_MAJOR = 0;
+    private static final byte MATRIX = 0, LU = 1, QR = 2, CHOLESKY = 3;
+    private static final int HEADER_BYTES = 24;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Per-thread transfer buffer. Each call finishes with it before
+     * returning, so the Writer or Reader of the next call can take it over.
+     */
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    };
+
+    private MatrixIO() {
+    }
+
+    /**
+     * Write a matrix record to a file, replacing its contents.
+     */
+    public static void write(Matrix A, File file) throws IOException {
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try {
+            write(A, channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read a matrix record from a file.
+     */
+    public static Matrix readMatrix(File file) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            return readMatrix(channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write a single precision matrix record to a file, replacing its contents.
+     */
+    public static void write(FloatMatrix A, File file) throws IOException {
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try {
+            write(A, channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read a single precision matrix record from a file.
+     */
+    public static FloatMatrix readFloatMatrix(File file) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            return readFloatMatrix(channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write an LU record to a file, replacing its contents.
+     */
+    public static void write(LUDecomposition lu, File file) throws IOException {
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try {
+            write(lu, channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read an LU record from a file.
+     */
+    public static LUDecomposition readLU(File file) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            return readLU(channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write a QR record to a file, replacing its contents.
+     */
+    public static void write(QRDecomposition qr, File file) throws IOException {
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try {
+            write(qr, channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read a QR record from a file.
+     */
+    public static QRDecomposition readQR(File file) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            return readQR(channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write a Cholesky record to a file, replacing its contents.
+     */
+    public static void write(CholeskyDecomposition chol, File file) throws IOException {
+        FileChannel channel = new FileOutputStream(file).getChannel();
+        try {
+            write(chol, channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Read a Cholesky record from a file.
+     */
+    public static CholeskyDecomposition readCholesky(File file) throws IOException {
+        FileChannel channel = new FileInputStream(file).getChannel();
+        try {
+            return readCholesky(channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write a matrix record.
+     *
+     * @param A       matrix, may be a window of a larger array
+     * @param channel destination, left open
+     */
+    public static void write(Matrix A, WritableByteChannel channel) throws IOException {
+        Writer w = new Writer(channel);
+        w.header(FLOAT64, MATRIX, A.rows(), A.columns());
+        w.doubles(A);
+        w.flush();
+    }
+
+    /**
+     * Read a matrix record.
+     *
+     * @param channel source, left open and positioned after the record
+     * @return new matrix
+     * @throws IOException not a float64 matrix record, or truncated
+     */
+    public static Matrix readMatrix(ReadableByteChannel channel) throws IOException {
+        Reader r = new Reader(channel);
+        int[] dims = r.header(FLOAT64, MATRIX);
+        r.expect(8L * dims[0] * dims[1]);
+        return r.doubles(dims[0], dims[1]);
+    }
+
+    /**
+     * Write a single precision matrix record.
+     *
+     * @param A       matrix
+     * @param channel destination, left open
+     */
+    public static void write(FloatMatrix A, WritableByteChannel channel) throws IOException {
+        Writer w = new Writer(channel);
+        w.header(FLOAT32, MATRIX, A.rows(), A.columns());
+        w.floats(A.data(), A.rows() * A.columns());
+        w.flush();
+    }
+
+    /**
+     * Read a single precision matrix record.
+     *
+     * @param channel source, left open and positioned after the record
+     * @return new matrix
+     * @throws IOException not a float32 matrix record, or truncated
+     */
+    public static FloatMatrix readFloatMatrix(ReadableByteChannel channel) throws IOException {
+        Reader r = new Reader(channel);
+        int[] dims = r.header(FLOAT32, MATRIX);
+        r.expect(4L * dims[0] * dims[1]);
+        float[] data = new float[dims[0] * dims[1]];
+        r.floats(data);
+        return new FloatMatrix(data, dims[0], dims[1]);
+    }
+
+    /**
+     * Write the factors of an LU decomposition, so it can be reloaded without factoring again.
+     *
+     * @param lu      decomposition
+     * @param channel destination, left open
+     */
+    public static void write(LUDecomposition lu, WritableByteChannel channel) throws IOException {
+        Matrix packed = lu.packed();
+        Writer w = new Writer(channel);
+        w.header(FLOAT64, LU, packed.rows(), packed.columns());
+        w.putInt(lu.pivotSign());
+        w.ints(lu.pivot());
+        w.doubles(packed);
+        w.flush();
+    }
+
+    /**
+     * Read the factors of an LU decomposition.
+     *
+     * @param channel source, left open and positioned after the record
+     * @return decomposition ready to solve
+     * @throws IOException not an LU record, pivots that are not a permutation
+     *                     of the rows, or truncated
+     */
+    public static LUDecomposition readLU(ReadableByteChannel channel) throws IOException {
+        Reader r = new Reader(channel);
+        int[] dims = r.header(FLOAT64, LU);
+        r.expect(4L + 4L * dims[0] + 8L * dims[0] * dims[1]);
+        int pivotSign = r.getInt();
+        if (pivotSign != 1 && pivotSign != -1) {
+            throw new IOException("Invalid pivot sign " + pivotSign + ".");
+        }
+        int[] pivot = new int[dims[0]];
+        r.ints(pivot);
+        boolean[] seen = new boolean[dims[0]];
+        for (int p : pivot) {
+            if (p < 0 || p >= dims[0] || seen[p]) {
+                throw new IOException("Pivot indices are not a permutation of the rows.");
+            }
+            seen[p] = true;
+        }
+        return new LUDecomposition(r.doubles(dims[0], dims[1]), pivot, pivotSign);
+    }
+
+    /**
+     * Write the factors of a QR decomposition, so it can be reloaded without factoring again.
+     *
+     * @param qr      decomposition
+     * @param channel destination, left open
+     */
+    public static void write(QRDecomposition qr, WritableByteChannel channel) throws IOException {
+        Matrix packed = qr.packed();
+        Writer w = new Writer(channel);
+        w.header(FLOAT64, QR, packed.rows(), packed.columns());
+        w.putInt(QRDecomposition.blockSize());
+        w.doubles(packed);
+        w.doubles(qr.rdiag(), qr.rdiag().length);
+        w.doubles(qr.blockFactors(), qr.blockFactors().length);
+        w.flush();
+    }
+
+    /**
+     * Read the factors of a QR decomposition.
+     *
+     * @param channel source, left open and positioned after the record
+     * @return decomposition ready to solve
+     * @throws IOException not a QR record, written with another block size, or truncated
+     */
+    public static QRDecomposition readQR(ReadableByteChannel channel) throws IOException {
+        Reader r = new Reader(channel);
+        int[] dims = r.header(FLOAT64, QR);
+        r.expect(4L + 8L * dims[0] * dims[1] + 8L * dims[1] + 8L * QRDecomposition.blockSize() * dims[1]);
+        int block = r.getInt();
+        if (block != QRDecomposition.blockSize()) {
+            throw new IOException("Unsupported QR block size " + block + ".");
+        }
+        if ((long) block * dims[1] > Integer.MAX_VALUE) {
+            throw new IOException("Matrix dimensions " + dims[0] + "x" + dims[1] + " are too large.");
+        }
+        Matrix packed = r.doubles(dims[0], dims[1]);
+        double[] rdiag = new double[dims[1]];
+        r.doubles(rdiag);
+        double[] t = new double[block * dims[1]];
+        r.doubles(t);
+        return new QRDecomposition(packed, rdiag, t);
+    }
+
+    /**
+     * Write a Cholesky decomposition, so it can be reloaded without factoring again.
+     *
+     * @param chol    decomposition
+     * @param channel destination, left open
+     */
+    public static void write(CholeskyDecomposition chol, WritableByteChannel channel) throws IOException {
+        int n = chol.order();
+        Writer w = new Writer(channel);
+        w.header(FLOAT64, CHOLESKY, n, n);
+        w.putInt(chol.isSPD() ? 1 : 0);
+        if (chol.isSPD()) {
+            w.doubles(chol.factor());
+        }
+        w.flush();
+    }
+
+    /**
+     * Read a Cholesky decomposition.
+     *
+     * @param channel source, left open and positioned after the record
+     * @return decomposition ready to solve, or one that reports !isSPD()
+     * @throws IOException not a Cholesky record, not square, or truncated
+     */
+    public static CholeskyDecomposition readCholesky(ReadableByteChannel channel) throws IOException {
+        Reader r = new Reader(channel);
+        int[] dims = r.header(FLOAT64, CHOLESKY);
+        if (dims[0] != dims[1]) {
+            throw new IOException("Cholesky record is not square.");
+        }
+        r.expect(4);
+        boolean spd = r.getInt() != 0;
+        if (spd) {
+            r.expect(8L * dims[0] * dims[1]);
+        }
+        return new CholeskyDecomposition(dims[0], spd ? r.doubles(dims[0], dims[1]) : null);
+    }
+
+    /**
+     * Buffers output in the thread's direct little-endian buffer.
+     */
+    private static final class Writer {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = BUFFER.get();
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+            buffer.clear();
+        }
+
+        void header(byte dtype, byte kind, int rows, int columns) {
+            buffer.putInt(MAGIC).putShort(VERSION).put(dtype).put(ROW_MAJOR).put(kind)
+                    .put((byte) 0).put((byte) 0).put((byte) 0)
+                    .putInt(rows).putInt(columns).putInt(0);
+        }
+
+        void putInt(int v) throws IOException {
+            room(4);
+            buffer.putInt(v);
+        }
+
+        void ints(int[] a) throws IOException {
+            for (int off = 0; off < a.length; ) {
+                room(4);
+                int k = Math.min(a.length - off, buffer.remaining() / 4);
+                IntBuffer view = buffer.asIntBuffer();
+                view.put(a, off, k);
+                buffer.position(buffer.position() + 4 * k);
+                off += k;
+            }
+        }
+
+        void doubles(Matrix A) throws IOException {
+            double[] a = A.data();
+            if (A.ld() == A.columns()) {
+                doubles(a, A.offset(), A.rows() * A.columns());
+                return;
+            }
+            for (int i = 0; i < A.rows(); i++) {
+                doubles(a, A.offset() + i * A.ld(), A.columns());
+            }
+        }
+
+        void doubles(double[] a, int length) throws IOException {
+            doubles(a, 0, length);
+        }
+
+        void doubles(double[] a, int off, int length) throws IOException {
+            int end = off + length;
+            while (off < end) {
+                room(8);
+                int k = Math.min(end - off, buffer.remaining() / 8);
+                DoubleBuffer view = buffer.asDoubleBuffer();
+                view.put(a, off, k);
+                buffer.position(buffer.position() + 8 * k);
+                off += k;
+            }
+        }
+
+        void floats(float[] a, int length) throws IOException {
+            for (int off = 0; off < length; ) {
+                room(4);
+                int k = Math.min(length - off, buffer.remaining() / 4);
+                FloatBuffer view = buffer.asFloatBuffer();
+                view.put(a, off, k);
+                buffer.position(buffer.position() + 4 * k);
+                off += k;
+            }
+        }
+
+        private void room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads input through the thread's direct little-endian buffer.
+     */
+    private static final class Reader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = BUFFER.get();
+
+        /**
+         * Bytes of the record not yet read from the channel; reads never go
+         * further, so the channel is left right after the record.
+         */
+        private long unread = HEADER_BYTES;
+
+        Reader(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.clear().limit(0);
+        }
+
+        /**
+         * Announce that the record continues for the given number of bytes.
+         */
+        void expect(long bytes) {
+            unread += bytes;
+        }
+
+        /**
+         * @return {rows, columns}, with rows * columns elements fitting in an array
+         */
+        int[] header(byte dtype, byte kind) throws IOException {
+            fill(HEADER_BYTES);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a matrix file.");
+            }
+            short version = buffer.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported matrix file version " + version + ".");
+            }
+            byte actualType = buffer.get();
+            byte layout = buffer.get();
+            byte actualKind = buffer.get();
+            buffer.position(buffer.position() + 3);
+            int rows = buffer.getInt();
+            int columns = buffer.getInt();
+            buffer.getInt();
+            if (actualType != dtype || actualKind != kind) {
+                throw new IOException("Unexpected record type " + actualType + "/" + actualKind + ".");
+            }
+            if (layout != ROW_MAJOR) {
+                throw new IOException("Unsupported layout " + layout + ".");
+            }
+            if (rows < 0 || columns < 0) {
+                throw new IOException("Negative matrix dimensions.");
+            }
+            if ((long) rows * columns > Integer.MAX_VALUE) {
+                throw new IOException("Matrix dimensions " + rows + "x" + columns + " are too large.");
+            }
+            return new int[]{rows, columns};
+        }
+
+        int getInt() throws IOException {
+            fill(4);
+            return buffer.getInt();
+        }
+
+        void ints(int[] a) throws IOException {
+            for (int off = 0; off < a.length; ) {
+                fill(4);
+                int k = Math.min(a.length - off, buffer.remaining() / 4);
+                buffer.asIntBuffer().get(a, off, k);
+                buffer.position(buffer.position() + 4 * k);
+                off += k;
+            }
+        }
+
+        Matrix doubles(int rows, int columns) throws IOException {
+            Matrix X = new Matrix(rows, columns);
+            doubles(X.data());
+            return X;
+        }
+
+        void doubles(double[] a) throws IOException {
+            for (int off = 0; off < a.length; ) {
+                fill(8);
+                int k = Math.min(a.length - off, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().get(a, off, k);
+                buffer.position(buffer.position() + 8 * k);
+                off += k;
+            }
+        }
+
+        void floats(float[] a) throws IOException {
+            for (int off = 0; off < a.length; ) {
+                fill(4);
+                int k = Math.min(a.length - off, buffer.remaining() / 4);
+                buffer.asFloatBuffer().get(a, off, k);
+                buffer.position(buffer.position() + 4 * k);
+                off += k;
+            }
+        }
+
+        /**
+         * Make at least the given number of bytes available.
+         */
+        private void fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (unread == 0) {
+                    throw new IOException("Record is shorter than its header says.");
+                }
+                buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + unread));
+                int n = channel.read(buffer);
+                if (n < 0) {
+                    throw new EOFException("Truncated matrix file.");
+                }
+                unread -= n;
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+/**
+ * Kernel used by {@link Matrix#mult(Matrix)}, see {@link Matrix#setDefaultAlgorithm}.
+ */
+public enum MultiplicationAlgorithm {
+    /**
+     * Blocked O(n^3) product, elementwise error bound n * u * |A| * |B|.
+     */
+    CLASSICAL,
+    /**
+     * Strassen-Winograd above {@link Strassen#crossover()}, classical below it.
+     * Faster for large products, with the weaker normwise error bound
+     * documented in {@link Strassen}.
+     */
+    STRASSEN
+}
@@ -6,6 +6,11 @@ import java.io.Serializable;
 
 public class QRDecomposition implements Serializable {
 
+    /**
+     * Number of reflectors accumulated into one block reflector.
+     */
+    private static final int BLOCK = 32;
+
     private Matrix QR;
     private int rows, columns;
 
@@ -16,53 +21,227 @@ public class QRDecomposition implements Serializable {
      */
     private double[] Rdiag;
 
+    /**
+     * Triangular factors of the block reflectors, I - V*T*V', one per panel.
+     * The factor of the panel starting at column k0 is jb-by-jb at T[k0 * BLOCK].
+     *
+     * @serial block reflector factors.
+     */
+    private double[] T;
+
     /**
      * QR Decomposition, computed by Householder reflections.
      * Structure to access R and the Householder vectors and compute Q.
+     * <p/>
+     * Reflectors are generated a panel of BLOCK columns at a time and gathered
+     * in compact WY form, I - V*T*V', so the rest of the matrix is updated
+     * with two matrix-matrix products instead of one pass per reflector.
      *
      * @param A Rectangular matrix
      */
     public QRDecomposition(Matrix A) {
+        decompose(A);
+    }
+
+    /**
+     * Factor another matrix into this decomposition, reusing its storage when
+     * A has the same dimensions as the previous one.
+     * Do not use it on a decomposition that a Matrix caches, see {@link Matrix#qr()}.
+     *
+     * @param A Rectangular matrix
+     * @return this decomposition
+     */
+    public QRDecomposition decompose(Matrix A) {
         // Initialize.
-        QR = A.copy();
+        if (QR == null || QR.rows() != A.rows() || QR.columns() != A.columns()) {
+            QR = new Matrix(A.rows(), A.columns());
+            Rdiag = new double[A.columns()];
+            T = new double[BLOCK * A.columns()];
+        }
+        A.copyTo(QR);
         rows = A.rows();
         columns = A.columns();
-        Rdiag = new double[columns];
+        double[] qr = QR.data();
+
+        // Main loop. Columns past the last row of a wide matrix get no reflector.
+        int steps = Math.min(rows, columns);
+        for (int k0 = 0; k0 < steps; k0 += BLOCK) {
+            int k1 = Math.min(steps, k0 + BLOCK);
+            factorPanel(qr, k0, k1);
+            formT(qr, k0, k1 - k0);
+            if (k1 < columns) {
+                applyBlockReflector(k0, k1 - k0, qr, k1, columns, columns - k1);
+            }
+        }
+        for (int k = steps; k < columns; k++) {
+            Rdiag[k] = -0.0;
+        }
+        return this;
+    }
+
+    /**
+     * Rebuild a decomposition from stored factors, see {@link MatrixIO}.
+     *
+     * @param QR    Householder vectors below the diagonal and R above it
+     * @param Rdiag diagonal of R
+     * @param T     block reflector factors, laid out for {@link #blockSize()}
+     */
+    QRDecomposition(Matrix QR, double[] Rdiag, double[] T) {
+        this.QR = QR;
+        this.rows = QR.rows();
+        this.columns = QR.columns();
+        this.Rdiag = Rdiag;
+        this.T = T;
+    }
+
+    /**
+     * @return number of reflectors per block, which fixes the layout of T.
+     */
+    static int blockSize() {
+        return BLOCK;
+    }
+
+    Matrix packed() {
+        return QR;
+    }
+
+    double[] rdiag() {
+        return Rdiag;
+    }
 
-        // Main loop.
-        for (int k = 0; k < columns; k++) {
+    double[] blockFactors() {
+        return T;
+    }
+
+    /**
+     * Unblocked Householder factorization of columns k0..k1-1.
+     * Reflectors are only applied inside the panel.
+     */
+    private void factorPanel(double[] qr, int k0, int k1) {
+        double[] w = Workspace.local().doubles(Workspace.PANEL, k1 - k0);
+        for (int k = k0; k < k1; k++) {
             // Compute 2-norm of k-th column without under/overflow.
             double nrm = 0;
             for (int i = k; i < rows; i++) {
-                nrm = Maths.hypot(nrm, QR.get(i, k));
+                nrm = Maths.hypot(nrm, qr[i * columns + k]);
             }
 
             if (nrm != 0.0) {
                 // Form k-th Householder vector.
-                if (QR.get(k, k) < 0.0) {
+                if (qr[k * columns + k] < 0.0) {
                     nrm = -nrm;
                 }
                 for (int i = k; i < rows; i++) {
-                    QR.set(i, k, QR.get(i, k) / nrm);
+                    qr[i * columns + k] /= nrm;
+                }
+                qr[k * columns + k] += 1.0;
+
+                // Apply transformation to remaining columns of the panel, a row at a time.
+                int nc = k1 - k - 1;
+                for (int j = 0; j < nc; j++) {
+                    w[j] = 0.0;
+                }
+                for (int i = k; i < rows; i++) {
+                    int rowI = i * columns;
+                    double vik = qr[rowI + k];
+                    Kernels.axpy(nc, vik, qr, rowI + k + 1, w, 0);
                 }
-                QR.set(k, k, QR.get(k, k) + 1.0);
-
-                // Apply transformation to remaining columns.
-                for (int j = k + 1; j < columns; j++) {
-                    double s = 0.0;
-                    for (int i = k; i < rows; i++) {
-                        s += QR.get(i, k) * QR.get(i, j);
-                    }
-                    s = -s / QR.get(k, k);
-                    for (int i = k; i < rows; i++) {
-                        QR.set(i, j, QR.get(i, j) + s * QR.get(i, k));
-                    }
+                double vkk = qr[k * columns + k];
+                for (int j = 0; j < nc; j++) {
+                    w[j] = -w[j] / vkk;
+                }
+                for (int i = k; i < rows; i++) {
+                    int rowI = i * columns;
+                    double vik = qr[rowI + k];
+                    Kernels.axpy(nc, vik, w, 0, qr, rowI + k + 1);
                 }
             }
             Rdiag[k] = -nrm;
         }
     }
 
+    /**
+     * Form the upper triangular T of the panel starting at column k0 so that
+     * H(k0) * ... * H(k0+jb-1) = I - V*T*V', where H(k) = I - v*v'/v(k).
+     */
+    private void formT(double[] qr, int k0, int jb) {
+        int t = k0 * BLOCK;
+        double[] z = Workspace.local().doubles(Workspace.PANEL, jb);
+        for (int i = 0; i < jb; i++) {
+            int k = k0 + i;
+            double tau = Rdiag[k] == 0.0 ? 0.0 : 1.0 / qr[k * columns + k];
+            T[t + i * jb + i] = tau;
+
+            // z = V(:, 0:i-1)' * v(i), v(i) is zero above row k.
+            for (int p = 0; p < i; p++) {
+                z[p] = 0.0;
+            }
+            for (int r = k; r < rows; r++) {
+                int rowR = r * columns;
+                double vri = qr[rowR + k];
+                for (int p = 0; p < i; p++) {
+                    z[p] += qr[rowR + k0 + p] * vri;
+                }
+            }
+            // T(0:i-1, i) = -tau * T(0:i-1, 0:i-1) * z
+            for (int p = 0; p < i; p++) {
+                double s = 0.0;
+                for (int q = p; q < i; q++) {
+                    s += T[t + p * jb + q] * z[q];
+                }
+                T[t + p * jb + i] = -tau * s;
+            }
+        }
+    }
+
+    /**
+     * C = (I - V*T*V')' * C for the panel starting at column k0, where C is the
+     * rows-by-nc block of the row-major array c starting at c[cOff], with
+     * leading dimension ldc. Only rows k0..rows-1 of C are touched.
+     */
+    private void applyBlockReflector(int k0, int jb, double[] c, int cOff, int ldc, int nc) {
+        double[] qr = QR.data();
+        int mr = rows - k0;
+
+        // Explicit copies of V and V', zero above the unit diagonal where QR holds R.
+        Workspace ws = Workspace.local();
+        double[] v = ws.zeros(Workspace.V, mr * jb);
+        double[] vt = ws.zeros(Workspace.VT, jb * mr);
+        for (int r = 0; r < mr; r++) {
+            int rowR = (k0 + r) * columns + k0;
+            for (int p = 0; p < jb && p <= r; p++) {
+                double vrp = qr[rowR + p];
+                v[r * jb + p] = vrp;
+                vt[p * mr + r] = vrp;
+            }
+        }
+
+        // W = V' * C
+        double[] w = ws.zeros(Workspace.W, jb * nc);
+        int c0 = cOff + k0 * ldc;
+        Gemm.multiply(jb, nc, mr, 1.0, vt, 0, mr, c, c0, ldc, w, 0, nc);
+
+        // W = T' * W, bottom row first so the rows still needed are untouched.
+        int t = k0 * BLOCK;
+        for (int p = jb - 1; p >= 0; p--) {
+            int rowP = p * nc;
+            double tpp = T[t + p * jb + p];
+            for (int j = 0; j < nc; j++) {
+                w[rowP + j] *= tpp;
+            }
+            for (int q = 0; q < p; q++) {
+                double tqp = T[t + q * jb + p];
+                if (tqp == 0.0) {
+                    continue;
+                }
+                Kernels.axpy(nc, tqp, w, q * nc, w, rowP);
+            }
+        }
+
+        // C = C - V * W
+        Gemm.multiply(mr, nc, jb, -1.0, v, 0, jb, w, 0, nc, c, c0, ldc);
+    }
+
     /**
      * Is the matrix full rank?
      *
@@ -85,41 +264,63 @@ public class QRDecomposition implements Serializable {
      * @throws RuntimeException         Matrix is rank deficient.
      */
     public Matrix solve(Matrix B) {
+        return solve(B, new Matrix(columns, B.columns()));
+    }
+
+    /**
+     * Least squares solution of A*X = B into a given matrix, without allocating.
+     *
+     * @param B    A Matrix with as many rows as A and any number of columns.
+     * @param Xmat Matrix with as many rows as A has columns and as many columns
+     *             as B that receives X, may share storage with B.
+     * @return Xmat
+     * @throws IllegalArgumentException Matrix dimensions must agree.
+     * @throws RuntimeException         Matrix is rank deficient.
+     */
+    public Matrix solve(Matrix B, Matrix Xmat) {
         if (B.rows() != rows) {
             throw new IllegalArgumentException("Matrix row dimensions must agree.");
         }
+        if (Xmat.rows() != columns || Xmat.columns() != B.columns()) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
         if (!this.isFullRank()) {
             throw new RuntimeException("Matrix is rank deficient.");
         }
 
         // Copy right hand side
         int nx = B.columns();
-        Matrix X = B.copy();
+        double[] X = Workspace.local().doubles(Workspace.RHS, rows * nx);
+        double[] b = B.data();
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(b, B.offset() + i * B.ld(), X, i * nx, nx);
+        }
+        double[] qr = QR.data();
 
         // Compute Y = transpose(Q)*B
-        for (int k = 0; k < columns; k++) {
-            for (int j = 0; j < nx; j++) {
-                double s = 0.0;
-                for (int i = k; i < rows; i++) {
-                    s += QR.get(i, k) * X.get(i, j);
-                }
-                s = -s / QR.get(k, k);
-                for (int i = k; i < rows; i++) {
-                    X.set(i, j, X.get(i, j) + s * QR.get(i, k));
-                }
-            }
+        int steps = Math.min(rows, columns);
+        for (int k0 = 0; k0 < steps; k0 += BLOCK) {
+            applyBlockReflector(k0, Math.min(BLOCK, steps - k0), X, 0, nx, nx);
         }
         // Solve R*X = Y;
         for (int k = columns - 1; k >= 0; k--) {
+            int rowK = k * nx;
             for (int j = 0; j < nx; j++) {
-                X.set(k, j, X.get(k, j) / Rdiag[k]);
+                X[rowK + j] /= Rdiag[k];
             }
             for (int i = 0; i < k; i++) {
+                double rik = qr[i * columns + k];
+                int rowI = i * nx;
                 for (int j = 0; j < nx; j++) {
-                    X.set(i, j, X.get(i, j) - X.get(k, j) * QR.get(i, k));
+                    X[rowI + j] -= X[rowK + j] * rik;
                 }
             }
         }
-        return (new Matrix(X.matrix(), columns, nx).subMatrix(0, columns - 1, 0, nx - 1));
+        Xmat.invalidate();
+        double[] x = Xmat.data();
+        for (int i = 0; i < columns; i++) {
+            System.arraycopy(X, i * nx, x, Xmat.offset() + i * Xmat.ld(), nx);
+        }
+        return Xmat;
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+/**
+ * Operations shared by the dense and sparse matrix types.
+ */
+public interface RealMatrix {
+
+    /**
+     * @return the number of rows.
+     */
+    int rows();
+
+    /**
+     * @return the number of columns.
+     */
+    int columns();
+
+    /**
+     * Get a single element.
+     *
+     * @param i Row index.
+     * @param j Column index.
+     * @return matrix(i, j)
+     */
+    double get(int i, int j);
+
+    /**
+     * Matrix-vector product, y = matrix * x
+     *
+     * @param x vector with as many elements as the matrix has columns
+     * @param y vector with as many elements as the matrix has rows, overwritten
+     */
+    void mult(double[] x, double[] y);
+
+    /**
+     * Product with a dense matrix, matrix * other
+     *
+     * @param other dense matrix with as many rows as this one has columns
+     * @return dense product
+     */
+    Matrix mult(Matrix other);
+
+    /**
+     * @return matrix'
+     */
+    RealMatrix transpose();
+
+    /**
+     * @return the elements as a dense matrix.
+     */
+    Matrix toDense();
+}
@@ -0,0 +1,405 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Parallel;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Sparse matrix in compressed sparse row (CSR) form.
+ * <p/>
+ * The non-zeros of row i are values[rowPtr[i]..rowPtr[i+1]-1], in columns
+ * colIndex[rowPtr[i]..rowPtr[i+1]-1], sorted by column with no duplicates.
+ * Storage and the cost of every operation grow with the number of non-zeros,
+ * not with rows * columns.
+ */
+public class SparseMatrix implements RealMatrix, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int rows, columns;
+    private int[] rowPtr;
+    private int[] colIndex;
+    private double[] values;
+
+    /**
+     * Wrap CSR arrays without copying.
+     *
+     * @param rows     Number of rows.
+     * @param columns  Number of colums.
+     * @param rowPtr   rows + 1 offsets into colIndex and values.
+     * @param colIndex Column of every non-zero, sorted within each row.
+     * @param values   Value of every non-zero.
+     * @throws IllegalArgumentException Array lengths do not match the dimensions.
+     */
+    public SparseMatrix(int rows, int columns, int[] rowPtr, int[] colIndex, double[] values) {
+        if (rowPtr.length != rows + 1 || rowPtr[0] != 0
+                || colIndex.length < rowPtr[rows] || values.length < rowPtr[rows]) {
+            throw new IllegalArgumentException("CSR arrays do not match the matrix dimensions.");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.rowPtr = rowPtr;
+        this.colIndex = colIndex;
+        this.values = values;
+    }
+
+    /**
+     * Construct an all-zero rows-by-columns matrix.
+     *
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     */
+    public SparseMatrix(int rows, int columns) {
+        this(rows, columns, new int[rows + 1], new int[0], new double[0]);
+    }
+
+    /**
+     * Build from coordinate triplets; entries that share a position are summed.
+     *
+     * @param rows    Number of rows.
+     * @param columns Number of colums.
+     * @param r       Row index of each entry.
+     * @param c       Column index of each entry.
+     * @param v       Value of each entry.
+     * @param count   Number of entries to read from r, c and v.
+     * @return rows-by-columns sparse matrix
+     * @throws ArrayIndexOutOfBoundsException Entry outside the matrix.
+     */
+    public static SparseMatrix fromTriplets(int rows, int columns, int[] r, int[] c, double[] v, int count) {
+        // Bucket the entries by row, then merge each row through a dense accumulator.
+        int[] rowStart = new int[rows + 1];
+        for (int e = 0; e < count; e++) {
+            if (r[e] < 0 || r[e] >= rows || c[e] < 0 || c[e] >= columns) {
+                throw new ArrayIndexOutOfBoundsException("Matrix index (" + r[e] + ", " + c[e] + ")");
+            }
+            rowStart[r[e] + 1]++;
+        }
+        for (int i = 0; i < rows; i++) {
+            rowStart[i + 1] += rowStart[i];
+        }
+        int[] next = Arrays.copyOf(rowStart, rows);
+        int[] bucketCol = new int[count];
+        double[] bucketVal = new double[count];
+        for (int e = 0; e < count; e++) {
+            int k = next[r[e]]++;
+            bucketCol[k] = c[e];
+            bucketVal[k] = v[e];
+        }
+
+        int[] rowPtr = new int[rows + 1];
+        int[] colIndex = new int[count];
+        double[] values = new double[count];
+        int[] marker = new int[columns];
+        Arrays.fill(marker, -1);
+        double[] acc = new double[columns];
+        int nz = 0;
+        for (int i = 0; i < rows; i++) {
+            int start = nz;
+            for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+                int j = bucketCol[k];
+                if (marker[j] != i) {
+                    marker[j] = i;
+                    colIndex[nz++] = j;
+                }
+                acc[j] += bucketVal[k];
+            }
+            nz = gatherRow(colIndex, values, acc, start, nz);
+            rowPtr[i + 1] = nz;
+        }
+        if (nz < count) {
+            colIndex = Arrays.copyOf(colIndex, nz);
+            values = Arrays.copyOf(values, nz);
+        }
+        return new SparseMatrix(rows, columns, rowPtr, colIndex, values);
+    }
+
+    /**
+     * Convert a dense matrix, keeping only the non-zero elements.
+     *
+     * @param A dense matrix
+     * @return A in CSR form
+     */
+    public static SparseMatrix fromDense(Matrix A) {
+        int m = A.rows(), n = A.columns();
+        double[] a = A.data();
+        int nz = 0;
+        for (int i = 0; i < m; i++) {
+            int rowI = A.offset() + i * A.ld();
+            for (int j = 0; j < n; j++) {
+                if (a[rowI + j] != 0.0) {
+                    nz++;
+                }
+            }
+        }
+        int[] rowPtr = new int[m + 1];
+        int[] colIndex = new int[nz];
+        double[] values = new double[nz];
+        nz = 0;
+        for (int i = 0; i < m; i++) {
+            int rowI = A.offset() + i * A.ld();
+            for (int j = 0; j < n; j++) {
+                if (a[rowI + j] != 0.0) {
+                    colIndex[nz] = j;
+                    values[nz++] = a[rowI + j];
+                }
+            }
+            rowPtr[i + 1] = nz;
+        }
+        return new SparseMatrix(m, n, rowPtr, colIndex, values);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * @return number of stored non-zeros.
+     */
+    public int nonZeros() {
+        return rowPtr[rows];
+    }
+
+    /**
+     * Access the internal row offsets.
+     *
+     * @return Pointer to the rows + 1 row offsets.
+     */
+    public int[] rowPtr() {
+        return rowPtr;
+    }
+
+    /**
+     * Access the internal column indices.
+     *
+     * @return Pointer to the column index of every non-zero.
+     */
+    public int[] colIndex() {
+        return colIndex;
+    }
+
+    /**
+     * Access the internal values.
+     *
+     * @return Pointer to the value of every non-zero.
+     */
+    public double[] values() {
+        return values;
+    }
+
+    /**
+     * Get a single element, by binary search within the row.
+     *
+     * @param i Row index.
+     * @param j Column index.
+     * @return matrix(i, j)
+     * @throws ArrayIndexOutOfBoundsException
+     */
+    public double get(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= columns) {
+            throw new ArrayIndexOutOfBoundsException("Matrix index (" + i + ", " + j + ")");
+        }
+        int k = Arrays.binarySearch(colIndex, rowPtr[i], rowPtr[i + 1], j);
+        return k >= 0 ? values[k] : 0.0;
+    }
+
+    public Matrix toDense() {
+        Matrix X = new Matrix(rows, columns);
+        double[] x = X.data();
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                x[i * columns + colIndex[k]] = values[k];
+            }
+        }
+        return X;
+    }
+
+    public void mult(double[] x, double[] y) {
+        if (x.length < columns || y.length < rows) {
+            throw new IllegalArgumentException("Vector dimensions must agree.");
+        }
+        for (int i = 0; i < rows; i++) {
+            double s = 0.0;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                s += values[k] * x[colIndex[k]];
+            }
+            y[i] = s;
+        }
+    }
+
+    /**
+     * Sparse times dense, matrix * other
+     *
+     * @param other dense matrix
+     * @return dense product
+     * @throws IllegalArgumentException Matrix inner dimensions must agree.
+     */
+    public Matrix mult(Matrix other) {
+        if (other.rows() != columns) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        final int n = other.columns();
+        final Matrix X = new Matrix(rows, n);
+        final double[] b = other.data();
+        final int bOff = other.offset(), ldb = other.ld();
+        final double[] c = X.data();
+        Parallel.forRange(0, rows, Math.max(1L, (long) nonZeros() / Math.max(1, rows)) * n, 64,
+                new Parallel.RangeTask() {
+                    public void run(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            int rowI = i * n;
+                            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                                double v = values[k];
+                                int rowB = bOff + colIndex[k] * ldb;
+                                for (int j = 0; j < n; j++) {
+                                    c[rowI + j] += v * b[rowB + j];
+                                }
+                            }
+                        }
+                    }
+                });
+        return X;
+    }
+
+    /**
+     * Sparse times sparse, matrix * other, row by row through a dense accumulator.
+     *
+     * @param other sparse matrix
+     * @return sparse product
+     * @throws IllegalArgumentException Matrix inner dimensions must agree.
+     */
+    public SparseMatrix mult(SparseMatrix other) {
+        if (other.rows != columns) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        int n = other.columns;
+        int[] ptr = new int[rows + 1];
+        int[] cols = new int[Math.max(16, nonZeros() + other.nonZeros())];
+        double[] vals = new double[cols.length];
+        int[] marker = new int[n];
+        Arrays.fill(marker, -1);
+        double[] acc = new double[n];
+        int nz = 0;
+        for (int i = 0; i < rows; i++) {
+            int start = nz;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                double a = values[k];
+                int p = colIndex[k];
+                for (int q = other.rowPtr[p]; q < other.rowPtr[p + 1]; q++) {
+                    int j = other.colIndex[q];
+                    if (marker[j] != i) {
+                        if (nz == cols.length) {
+                            cols = Arrays.copyOf(cols, 2 * nz);
+                            vals = Arrays.copyOf(vals, 2 * nz);
+                        }
+                        marker[j] = i;
+                        cols[nz++] = j;
+                    }
+                    acc[j] += a * other.values[q];
+                }
+            }
+            nz = gatherRow(cols, vals, acc, start, nz);
+            ptr[i + 1] = nz;
+        }
+        return new SparseMatrix(rows, n, ptr, Arrays.copyOf(cols, nz), Arrays.copyOf(vals, nz));
+    }
+
+    /**
+     * C = matrix + other
+     *
+     * @param other another sparse matrix
+     * @return matrix + other
+     */
+    public SparseMatrix plus(SparseMatrix other) {
+        return add(1.0, other);
+    }
+
+    /**
+     * C = matrix - other
+     *
+     * @param other another sparse matrix
+     * @return matrix - other
+     */
+    public SparseMatrix minus(SparseMatrix other) {
+        return add(-1.0, other);
+    }
+
+    /**
+     * Matrix transpose, by counting the non-zeros of every column.
+     *
+     * @return matrix'
+     */
+    public SparseMatrix transpose() {
+        int nz = nonZeros();
+        int[] ptr = new int[columns + 1];
+        for (int k = 0; k < nz; k++) {
+            ptr[colIndex[k] + 1]++;
+        }
+        for (int j = 0; j < columns; j++) {
+            ptr[j + 1] += ptr[j];
+        }
+        int[] next = Arrays.copyOf(ptr, columns);
+        int[] cols = new int[nz];
+        double[] vals = new double[nz];
+        for (int i = 0; i < rows; i++) {
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++) {
+                int dst = next[colIndex[k]]++;
+                cols[dst] = i;
+                vals[dst] = values[k];
+            }
+        }
+        return new SparseMatrix(columns, rows, ptr, cols, vals);
+    }
+
+    /**
+     * matrix + alpha * other, merging the sorted rows.
+     */
+    private SparseMatrix add(double alpha, SparseMatrix other) {
+        if (other.rows != rows || other.columns != columns) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        int[] ptr = new int[rows + 1];
+        int[] cols = new int[nonZeros() + other.nonZeros()];
+        double[] vals = new double[cols.length];
+        int nz = 0;
+        for (int i = 0; i < rows; i++) {
+            int p = rowPtr[i], pEnd = rowPtr[i + 1];
+            int q = other.rowPtr[i], qEnd = other.rowPtr[i + 1];
+            while (p < pEnd || q < qEnd) {
+                int jp = p < pEnd ? colIndex[p] : Integer.MAX_VALUE;
+                int jq = q < qEnd ? other.colIndex[q] : Integer.MAX_VALUE;
+                if (jp < jq) {
+                    cols[nz] = jp;
+                    vals[nz++] = values[p++];
+                } else if (jq < jp) {
+                    cols[nz] = jq;
+                    vals[nz++] = alpha * other.values[q++];
+                } else {
+                    cols[nz] = jp;
+                    vals[nz++] = values[p++] + alpha * other.values[q++];
+                }
+            }
+            ptr[i + 1] = nz;
+        }
+        return new SparseMatrix(rows, columns, ptr, Arrays.copyOf(cols, nz), Arrays.copyOf(vals, nz));
+    }
+
+    /**
+     * Sort the columns touched by one row, cols[from..to-1], move their sums
+     * from the dense accumulator into vals and clear it for the next row.
+     *
+     * @return to, the end of the row
+     */
+    private static int gatherRow(int[] cols, double[] vals, double[] acc, int from, int to) {
+        Arrays.sort(cols, from, to);
+        for (int k = from; k < to; k++) {
+            vals[k] = acc[cols[k]];
+            acc[cols[k]] = 0.0;
+        }
+        return to;
+    }
+}
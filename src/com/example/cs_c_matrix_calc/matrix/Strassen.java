@@ -0,0 +1,212 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+/**
+ * Strassen-Winograd matrix multiplication, C = A * B.
+ * <p/>
+ * Each level splits the operands into 2x2 blocks and forms the product with
+ * 7 block multiplications and 15 block additions instead of 8 and 4, so the
+ * cost falls from O(n^3) towards O(n^2.81). Recursion stops once a dimension
+ * is at most {@link #crossover()}, where the blocked {@link Gemm} kernel takes
+ * over. Odd dimensions are handled by dynamic peeling: the even leading part
+ * recurses and the last row, column and inner index are added with Gemm, so
+ * no padded copy of the operands is ever made. Block temporaries come from a
+ * per-thread scratch array that is reused across calls.
+ * <p/>
+ * Error bounds, with u the unit roundoff (1.1e-16), |X| the largest absolute
+ * element, n the common dimension and n0 the size at which recursion stops:
+ * <ul>
+ * <li>classical product, elementwise: |C - fl(C)| &lt;= n * u * |A| * |B|
+ * (element by element, the matrices of absolute values);</li>
+ * <li>Strassen-Winograd, normwise only:
+ * max|C - fl(C)| &lt;= ((n / n0)^log2(18) * (n0^2 + 6 * n0) - 6 * n) * u * max|A| * max|B|.</li>
+ * </ul>
+ * For sizes that are not n0 times a power of two, n is the largest dimension
+ * and n0 the largest dimension of the blocks at which recursion stopped;
+ * the peeled rows and columns only add classical rank-1 terms.
+ * The second bound grows like n^4.17 rather than n and holds for the largest
+ * element only, so small elements of C can lose all their relative accuracy
+ * when A or B is badly scaled. For well scaled dense operands the observed
+ * error is typically one or two orders of magnitude above the classical one.
+ * Use it where that is acceptable, see {@link MultiplicationAlgorithm}.
+ */
+public final class Strassen {
+
+    private static volatile int sCrossover = 256;
+
+    private Strassen() {
+    }
+
+    /**
+     * Set the size below which the classical kernel is used.
+     *
+     * @param crossover smallest dimension at or below which recursion stops, at least 1.
+     *                  Below about 64 the extra additions cost more than the saved
+     *                  products, small values are only useful for testing.
+     */
+    public static void setCrossover(int crossover) {
+        if (crossover < 1) {
+            throw new IllegalArgumentException("Crossover must be positive.");
+        }
+        sCrossover = crossover;
+    }
+
+    /**
+     * @return smallest dimension at or below which recursion stops.
+     */
+    public static int crossover() {
+        return sCrossover;
+    }
+
+    /**
+     * C = A * B on row-major arrays, element (i, j) of X at x[xOff + i * ldx + j].
+     * C must not overlap A or B.
+     *
+     * @param m Number of rows of A and C.
+     * @param n Number of columns of B and C.
+     * @param k Number of columns of A and rows of B.
+     */
+    static void multiply(int m, int n, int k,
+                         double[] a, int aOff, int lda,
+                         double[] b, int bOff, int ldb,
+                         double[] c, int cOff, int ldc) {
+        int n0 = sCrossover;
+        int size = scratchSize(m, n, k, n0);
+        double[] w = Workspace.local().doubles(Workspace.STRASSEN, size);
+        multiply(m, n, k, a, aOff, lda, b, bOff, ldb, c, cOff, ldc, w, 0, n0);
+    }
+
+    /**
+     * Temporaries needed by one level, X (A block), Y (B block) and two C
+     * blocks, plus those of the level below.
+     */
+    private static int scratchSize(int m, int n, int k, int n0) {
+        if (m <= n0 || n <= n0 || k <= n0) {
+            return 0;
+        }
+        int hm = m / 2, hn = n / 2, hk = k / 2;
+        return hm * hk + hk * hn + 2 * hm * hn + scratchSize(hm, hn, hk, n0);
+    }
+
+    private static void multiply(int m, int n, int k,
+                                 double[] a, int aOff, int lda,
+                                 double[] b, int bOff, int ldb,
+                                 double[] c, int cOff, int ldc,
+                                 double[] w, int wOff, int n0) {
+        if (m <= n0 || n <= n0 || k <= n0) {
+            classical(m, n, k, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+            return;
+        }
+        int m2 = m & ~1, n2 = n & ~1, k2 = k & ~1;
+        winograd(m2 / 2, n2 / 2, k2 / 2, a, aOff, lda, b, bOff, ldb, c, cOff, ldc, w, wOff, n0);
+
+        // Dynamic peeling of the odd row, column and inner index.
+        if (k2 < k) {
+            // C(0:m2, 0:n2) += A(0:m2, k-1) * B(k-1, 0:n2)
+            Gemm.multiply(m2, n2, 1, 1.0, a, aOff + k2, lda, b, bOff + k2 * ldb, ldb, c, cOff, ldc);
+        }
+        if (n2 < n) {
+            // C(:, n-1) = A * B(:, n-1)
+            classical(m, 1, k, a, aOff, lda, b, bOff + n2, ldb, c, cOff + n2, ldc);
+        }
+        if (m2 < m) {
+            // C(m-1, 0:n2) = A(m-1, :) * B(:, 0:n2)
+            classical(1, n2, k, a, aOff + m2 * lda, lda, b, bOff, ldb, c, cOff + m2 * ldc, ldc);
+        }
+    }
+
+    /**
+     * One level of the Winograd variant on even sized operands split into
+     * hm-by-hk, hk-by-hn and hm-by-hn blocks:
+     * <pre>
+     * S1 = A21 + A22   T1 = B12 - B11   P1 = A11 * B11   P5 = S1 * T1
+     * S2 = S1 - A11    T2 = B22 - T1    P2 = A12 * B21   P6 = S2 * T2
+     * S3 = A11 - A21   T3 = B22 - B12   P3 = S4 * B22    P7 = S3 * T3
+     * S4 = A12 - S2    T4 = T2 - B21    P4 = A22 * T4
+     *
+     * C11 = P1 + P2        C12 = P1 + P6 + P5 + P3
+     * C21 = P1 + P6 + P7 - P4   C22 = P1 + P6 + P7 + P5
+     * </pre>
+     * The products are written into the quadrants of C as early as possible so
+     * only two extra C-sized blocks are needed.
+     */
+    private static void winograd(int hm, int hn, int hk,
+                                 double[] a, int aOff, int lda,
+                                 double[] b, int bOff, int ldb,
+                                 double[] c, int cOff, int ldc,
+                                 double[] w, int wOff, int n0) {
+        int a11 = aOff, a12 = aOff + hk, a21 = aOff + hm * lda, a22 = a21 + hk;
+        int b11 = bOff, b12 = bOff + hn, b21 = bOff + hk * ldb, b22 = b21 + hn;
+        int c11 = cOff, c12 = cOff + hn, c21 = cOff + hm * ldc, c22 = c21 + hn;
+        int x = wOff, y = x + hm * hk, m1 = y + hk * hn, m2 = m1 + hm * hn, next = m2 + hm * hn;
+
+        // C21 = P7 = (A11 - A21) * (B22 - B12)
+        add(hm, hk, a, a11, lda, -1.0, a, a21, lda, w, x, hk);
+        add(hk, hn, b, b22, ldb, -1.0, b, b12, ldb, w, y, hn);
+        multiply(hm, hn, hk, w, x, hk, w, y, hn, c, c21, ldc, w, next, n0);
+        // C22 = P5 = (A21 + A22) * (B12 - B11)
+        add(hm, hk, a, a21, lda, 1.0, a, a22, lda, w, x, hk);
+        add(hk, hn, b, b12, ldb, -1.0, b, b11, ldb, w, y, hn);
+        multiply(hm, hn, hk, w, x, hk, w, y, hn, c, c22, ldc, w, next, n0);
+        // C12 = P6 = (S1 - A11) * (B22 - T1)
+        add(hm, hk, w, x, hk, -1.0, a, a11, lda, w, x, hk);
+        add(hk, hn, b, b22, ldb, -1.0, w, y, hn, w, y, hn);
+        multiply(hm, hn, hk, w, x, hk, w, y, hn, c, c12, ldc, w, next, n0);
+        // M1 = P3 = (A12 - S2) * B22
+        add(hm, hk, a, a12, lda, -1.0, w, x, hk, w, x, hk);
+        multiply(hm, hn, hk, w, x, hk, b, b22, ldb, w, m1, hn, w, next, n0);
+        // M2 = P1 = A11 * B11
+        multiply(hm, hn, hk, a, a11, lda, b, b11, ldb, w, m2, hn, w, next, n0);
+
+        add(hm, hn, c, c12, ldc, 1.0, w, m2, hn, c, c12, ldc);   // C12 = P1 + P6
+        add(hm, hn, c, c21, ldc, 1.0, c, c12, ldc, c, c21, ldc); // C21 = P1 + P6 + P7
+        add(hm, hn, c, c12, ldc, 1.0, c, c22, ldc, c, c12, ldc); // C12 = P1 + P6 + P5
+        add(hm, hn, c, c22, ldc, 1.0, c, c21, ldc, c, c22, ldc); // C22 = P1 + P6 + P7 + P5
+        add(hm, hn, c, c12, ldc, 1.0, w, m1, hn, c, c12, ldc);   // C12 += P3
+
+        // M1 = P4 = A22 * (T2 - B21)
+        add(hk, hn, w, y, hn, -1.0, b, b21, ldb, w, y, hn);
+        multiply(hm, hn, hk, a, a22, lda, w, y, hn, w, m1, hn, w, next, n0);
+        add(hm, hn, c, c21, ldc, -1.0, w, m1, hn, c, c21, ldc);  // C21 -= P4
+
+        // C11 = P1 + P2
+        multiply(hm, hn, hk, a, a12, lda, b, b21, ldb, w, m1, hn, w, next, n0);
+        add(hm, hn, w, m2, hn, 1.0, w, m1, hn, c, c11, ldc);
+    }
+
+    /**
+     * C = A + s * B on m-by-n blocks, s is 1 or -1. C may be A or B.
+     */
+    private static void add(int m, int n,
+                            double[] a, int aOff, int lda, double s,
+                            double[] b, int bOff, int ldb,
+                            double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            int ai = aOff + i * lda, bi = bOff + i * ldb, ci = cOff + i * ldc;
+            if (s == 1.0) {
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] = a[ai + j] + b[bi + j];
+                }
+            } else {
+                for (int j = 0; j < n; j++) {
+                    c[ci + j] = a[ai + j] - b[bi + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * C = A * B with the classical kernel.
+     */
+    private static void classical(int m, int n, int k,
+                                  double[] a, int aOff, int lda,
+                                  double[] b, int bOff, int ldb,
+                                  double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            int ci = cOff + i * ldc;
+            for (int j = 0; j < n; j++) {
+                c[ci + j] = 0.0;
+            }
+        }
+        Gemm.multiply(m, n, k, 1.0, a, aOff, lda, b, bOff, ldb, c, cOff, ldc);
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import java.io.Closeable;
+
+/**
+ * LU decomposition of a {@link TiledMatrix}, computed and stored outside the heap.
+ * <p/>
+ * Right-looking factorization by tile columns. Each column of tiles is
+ * gathered into one heap panel and factored with partial pivoting, the row
+ * interchanges are applied to the other tile columns, and the trailing tiles
+ * are updated one tile at a time with {@link Gemm}. Besides the tile cache
+ * only the panel, tileSize columns of the matrix, is held in memory.
+ */
+public class TiledLUDecomposition implements Closeable {
+
+    private static final double EPS = 1e-6;
+    private final TiledMatrix LU;
+    private final int n, tileSize, tiles;
+    private int pivotSign;
+    private final int[] pivot;
+
+    /**
+     * LU Decomposition
+     *
+     * @param A       Square tiled matrix, left unchanged.
+     * @param factors Zero matrix with the dimensions and tile size of A that
+     *                receives the factors.
+     * @throws IllegalArgumentException Matrix must be square.
+     */
+    public TiledLUDecomposition(TiledMatrix A, TiledMatrix factors) {
+        if (A.rows() != A.columns()) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        if (factors.rows() != A.rows() || factors.columns() != A.columns()
+                || factors.tileSize() != A.tileSize()) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        n = A.rows();
+        tileSize = A.tileSize();
+        tiles = A.tileRows();
+        LU = factors;
+        int size = tileSize * tileSize;
+        for (int ti = 0; ti < tiles; ti++) {
+            for (int tj = 0; tj < tiles; tj++) {
+                System.arraycopy(A.tile(ti, tj, false), 0, LU.tile(ti, tj, true), 0, size);
+            }
+        }
+        pivot = new int[n];
+        for (int i = 0; i < n; i++) {
+            pivot[i] = i;
+        }
+        pivotSign = 1;
+
+        for (int k = 0; k < tiles; k++) {
+            int k0 = k * tileSize;
+            int kb = LU.columnsIn(k);
+            int[] swaps = factorPanel(k, k0, kb);
+
+            for (int tj = 0; tj < tiles; tj++) {
+                if (tj != k) {
+                    swapRows(tj, k0, swaps);
+                }
+            }
+
+            for (int tj = k + 1; tj < tiles; tj++) {
+                int nc = LU.columnsIn(tj);
+                // U(k, j) = inverse(L(k, k)) * A(k, j)
+                double[] lkk = LU.tile(k, k, false);
+                double[] ukj = LU.tile(k, tj, true);
+                for (int i = 1; i < kb; i++) {
+                    int rowI = i * tileSize;
+                    for (int p = 0; p < i; p++) {
+                        double lip = lkk[rowI + p];
+                        if (lip == 0.0) {
+                            continue;
+                        }
+                        int rowP = p * tileSize;
+                        for (int j = 0; j < nc; j++) {
+                            ukj[rowI + j] -= lip * ukj[rowP + j];
+                        }
+                    }
+                }
+                // A(i, j) -= L(i, k) * U(k, j)
+                for (int ti = k + 1; ti < tiles; ti++) {
+                    double[] aij = LU.tile(ti, tj, true);
+                    Gemm.multiply(LU.rowsIn(ti), nc, kb, -1.0,
+                            LU.tile(ti, k, false), 0, tileSize,
+                            LU.tile(k, tj, false), 0, tileSize,
+                            aij, 0, tileSize);
+                }
+            }
+        }
+        LU.flush();
+    }
+
+    /**
+     * Gather tile column k below the diagonal into a heap panel, factor it with
+     * partial pivoting and scatter it back.
+     *
+     * @return swaps[r], the row interchanged with row k0 + r.
+     */
+    private int[] factorPanel(int k, int k0, int kb) {
+        int m = n - k0;
+        double[] panel = new double[m * kb];
+        for (int ti = k; ti < tiles; ti++) {
+            double[] t = LU.tile(ti, k, false);
+            int r0 = ti * tileSize - k0;
+            for (int i = 0; i < LU.rowsIn(ti); i++) {
+                System.arraycopy(t, i * tileSize, panel, (r0 + i) * kb, kb);
+            }
+        }
+
+        int[] swaps = new int[kb];
+        for (int j = 0; j < kb; j++) {
+            int p = j;
+            double max = Math.abs(panel[j * kb + j]);
+            for (int i = j + 1; i < m; i++) {
+                double v = Math.abs(panel[i * kb + j]);
+                if (v > max) {
+                    max = v;
+                    p = i;
+                }
+            }
+            swaps[j] = k0 + p;
+            if (p != j) {
+                for (int q = 0; q < kb; q++) {
+                    double t = panel[p * kb + q];
+                    panel[p * kb + q] = panel[j * kb + q];
+                    panel[j * kb + q] = t;
+                }
+                int t = pivot[k0 + p];
+                pivot[k0 + p] = pivot[k0 + j];
+                pivot[k0 + j] = t;
+                pivotSign = -pivotSign;
+            }
+            double ljj = panel[j * kb + j];
+            if (ljj != 0.0) {
+                for (int i = j + 1; i < m; i++) {
+                    int rowI = i * kb;
+                    double lij = panel[rowI + j] /= ljj;
+                    if (lij == 0.0) {
+                        continue;
+                    }
+                    for (int q = j + 1; q < kb; q++) {
+                        panel[rowI + q] -= lij * panel[j * kb + q];
+                    }
+                }
+            }
+        }
+
+        for (int ti = k; ti < tiles; ti++) {
+            double[] t = LU.tile(ti, k, true);
+            int r0 = ti * tileSize - k0;
+            for (int i = 0; i < LU.rowsIn(ti); i++) {
+                System.arraycopy(panel, (r0 + i) * kb, t, i * tileSize, kb);
+            }
+        }
+        return swaps;
+    }
+
+    /**
+     * Apply the interchanges of one panel to tile column tj.
+     */
+    private void swapRows(int tj, int k0, int[] swaps) {
+        int nc = LU.columnsIn(tj);
+        for (int r = 0; r < swaps.length; r++) {
+            int p = swaps[r], q = k0 + r;
+            if (p == q) {
+                continue;
+            }
+            double[] tp = LU.tile(p / tileSize, tj, true);
+            double[] tq = LU.tile(q / tileSize, tj, true);
+            int rowP = (p % tileSize) * tileSize, rowQ = (q % tileSize) * tileSize;
+            for (int j = 0; j < nc; j++) {
+                double t = tp[rowP + j];
+                tp[rowP + j] = tq[rowQ + j];
+                tq[rowQ + j] = t;
+            }
+        }
+    }
+
+    public boolean isNonSingular() {
+        for (int j = 0; j < n; j++) {
+            if (Math.abs(LU.get(j, j)) < EPS)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return pivot permutation, row i of L*U is row pivot[i] of A.
+     */
+    public int[] getPivot() {
+        return pivot.clone();
+    }
+
+    /**
+     * @return the combined factors, L below the unit diagonal and U on and above it.
+     */
+    public TiledMatrix getLU() {
+        return LU;
+    }
+
+    /**
+     * Determinant
+     *
+     * @return det(A)
+     */
+    public double det() {
+        double d = (double) pivotSign;
+        for (int j = 0; j < n; j++) {
+            d *= LU.get(j, j);
+        }
+        return d;
+    }
+
+    /**
+     * Solve A*X = B for an in-memory right hand side.
+     *
+     * @param B A Matrix with as many rows as A and any number of columns.
+     * @return X so that L*U*X = B(pivot,:)
+     * @throws IllegalArgumentException Matrix row dimensions must agree.
+     * @throws RuntimeException         Matrix is singular.
+     */
+    public Matrix solve(Matrix B) {
+        if (B.rows() != n) {
+            throw new IllegalArgumentException("Matrix row dimensions must agree.");
+        }
+        if (!this.isNonSingular()) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+        int nx = B.columns();
+        Matrix Xmat = B.subMatrix(pivot, 0, nx - 1);
+        double[] X = Xmat.data();
+
+        // Solve L*Y = B(pivot,:)
+        for (int k = 0; k < tiles; k++) {
+            int k0 = k * tileSize, kb = LU.rowsIn(k);
+            double[] lkk = LU.tile(k, k, false);
+            for (int i = 1; i < kb; i++) {
+                int rowI = (k0 + i) * nx;
+                for (int p = 0; p < i; p++) {
+                    double lip = lkk[i * tileSize + p];
+                    int rowP = (k0 + p) * nx;
+                    for (int j = 0; j < nx; j++) {
+                        X[rowI + j] -= lip * X[rowP + j];
+                    }
+                }
+            }
+            for (int ti = k + 1; ti < tiles; ti++) {
+                Gemm.multiply(LU.rowsIn(ti), nx, kb, -1.0, LU.tile(ti, k, false), 0, tileSize,
+                        X, k0 * nx, nx, X, ti * tileSize * nx, nx);
+            }
+        }
+        // Solve U*X = Y;
+        for (int k = tiles - 1; k >= 0; k--) {
+            int k0 = k * tileSize, kb = LU.rowsIn(k);
+            double[] ukk = LU.tile(k, k, false);
+            for (int i = kb - 1; i >= 0; i--) {
+                int rowI = (k0 + i) * nx;
+                for (int p = i + 1; p < kb; p++) {
+                    double uip = ukk[i * tileSize + p];
+                    int rowP = (k0 + p) * nx;
+                    for (int j = 0; j < nx; j++) {
+                        X[rowI + j] -= uip * X[rowP + j];
+                    }
+                }
+                double uii = ukk[i * tileSize + i];
+                for (int j = 0; j < nx; j++) {
+                    X[rowI + j] /= uii;
+                }
+            }
+            for (int ti = 0; ti < k; ti++) {
+                Gemm.multiply(LU.rowsIn(ti), nx, kb, -1.0, LU.tile(ti, k, false), 0, tileSize,
+                        X, k0 * nx, nx, X, ti * tileSize * nx, nx);
+            }
+        }
+        return Xmat;
+    }
+
+    /**
+     * Release the storage of the factors.
+     */
+    public void close() {
+        LU.close();
+    }
+}
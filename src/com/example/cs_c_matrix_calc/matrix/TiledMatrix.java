@@ -0,0 +1,436 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import java.io.Closeable;
+import java.nio.DoubleBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matrix stored outside the Java heap in square tiles.
+ * <p/>
+ * The matrix is cut into tiles of tileSize x tileSize doubles stored one
+ * after the other, tile (ti, tj) at index ti * tileColumns + tj, each tile
+ * row-major and zero padded at the right and bottom edges. The storage is a
+ * list of DoubleBuffer segments of at most 1GB, a tile never straddles two
+ * of them; subclasses decide where the segments live.
+ * <p/>
+ * Operations never touch more than a few tiles at a time. Tiles are copied
+ * into heap arrays on first use and kept in a bounded LRU cache; modified
+ * tiles are written back to the storage when they are evicted, on
+ * {@link #flush()} and on {@link #close()}. Arithmetic on the tiles runs on
+ * the same kernels as {@link Matrix}, so the work per tile is in-core speed
+ * while the heap only ever holds the cached tiles.
+ * <p/>
+ * Instances are not thread safe.
+ */
+public abstract class TiledMatrix implements RealMatrix, Closeable {
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+    public static final int DEFAULT_CACHED_TILES = 64;
+
+    /**
+     * Largest single segment; buffers are indexed by int, mappings are limited to 2GB.
+     */
+    private static final long SEGMENT_BYTES = 1L << 30;
+
+    private final int rows, columns, tileSize, tileRows, tileColumns;
+    private final int tilesPerSegment;
+    private DoubleBuffer[] segments;
+    private final TileCache cache;
+
+    TiledMatrix(int rows, int columns, int tileSize, int cachedTiles) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Matrix dimensions must not be negative.");
+        }
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be positive.");
+        }
+        if (cachedTiles < 4) {
+            throw new IllegalArgumentException("At least 4 tiles must be cached.");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.tileSize = tileSize;
+        tileRows = (rows + tileSize - 1) / tileSize;
+        tileColumns = (columns + tileSize - 1) / tileSize;
+        long tileBytes = 8L * tileSize * tileSize;
+        if (tileBytes > SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Tile size is too large.");
+        }
+        tilesPerSegment = (int) (SEGMENT_BYTES / tileBytes);
+        cache = new TileCache(cachedTiles);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    /**
+     * @return rows and columns of a tile.
+     */
+    public int tileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Get a single element.
+     *
+     * @param i Row index.
+     * @param j Column index.
+     * @return matrix(i, j)
+     * @throws ArrayIndexOutOfBoundsException
+     */
+    public double get(int i, int j) {
+        checkIndex(i, j);
+        return tile(i / tileSize, j / tileSize, false)[(i % tileSize) * tileSize + j % tileSize];
+    }
+
+    /**
+     * Set a single element.
+     *
+     * @param i Row index.
+     * @param j Column index.
+     * @param s matrix(i, j)
+     * @throws ArrayIndexOutOfBoundsException
+     */
+    public void set(int i, int j, double s) {
+        checkIndex(i, j);
+        tile(i / tileSize, j / tileSize, true)[(i % tileSize) * tileSize + j % tileSize] = s;
+    }
+
+    /**
+     * Write all modified tiles to the storage.
+     */
+    public void flush() {
+        checkOpen();
+        cache.writeBack();
+    }
+
+    /**
+     * Flush and release the storage. The matrix can not be used afterwards.
+     */
+    public void close() {
+        if (segments != null) {
+            cache.writeBack();
+            cache.clear();
+            DoubleBuffer[] released = segments;
+            segments = null;
+            release(released);
+        }
+    }
+
+    /**
+     * Matrix-vector product, y = matrix * x
+     *
+     * @param x vector with as many elements as the matrix has columns
+     * @param y vector with as many elements as the matrix has rows, overwritten
+     */
+    public void mult(double[] x, double[] y) {
+        if (x.length < columns || y.length < rows) {
+            throw new IllegalArgumentException("Vector dimensions must agree.");
+        }
+        for (int i = 0; i < rows; i++) {
+            y[i] = 0.0;
+        }
+        for (int ti = 0; ti < tileRows; ti++) {
+            int mr = rowsIn(ti);
+            for (int tj = 0; tj < tileColumns; tj++) {
+                double[] t = tile(ti, tj, false);
+                int nc = columnsIn(tj);
+                int j0 = tj * tileSize;
+                for (int i = 0; i < mr; i++) {
+                    y[ti * tileSize + i] += Kernels.dot(nc, t, i * tileSize, x, j0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Product with a dense in-memory matrix, tile row by tile row.
+     *
+     * @param other dense matrix with as many rows as this one has columns
+     * @return dense product, rows-by-other.columns
+     * @throws IllegalArgumentException Matrix inner dimensions must agree.
+     */
+    public Matrix mult(Matrix other) {
+        if (other.rows() != columns) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        int n = other.columns();
+        Matrix X = new Matrix(rows, n);
+        double[] x = X.data();
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tp = 0; tp < tileColumns; tp++) {
+                Gemm.multiply(rowsIn(ti), n, columnsIn(tp), 1.0,
+                        tile(ti, tp, false), 0, tileSize,
+                        other.data(), other.offset() + tp * tileSize * other.ld(), other.ld(),
+                        x, ti * tileSize * n, n);
+            }
+        }
+        return X;
+    }
+
+    /**
+     * Copy into a dense in-memory matrix.
+     *
+     * @return dense copy, which must fit in the heap
+     */
+    public Matrix toDense() {
+        Matrix X = new Matrix(rows, columns);
+        double[] x = X.data();
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tj = 0; tj < tileColumns; tj++) {
+                double[] t = tile(ti, tj, false);
+                int mr = rowsIn(ti), nc = columnsIn(tj);
+                for (int i = 0; i < mr; i++) {
+                    System.arraycopy(t, i * tileSize, x, (ti * tileSize + i) * columns + tj * tileSize, nc);
+                }
+            }
+        }
+        return X;
+    }
+
+    /**
+     * Free the segments after the last write-back.
+     */
+    abstract void release(DoubleBuffer[] segments);
+
+    /**
+     * Install the storage, called once by the subclass constructor.
+     */
+    void attach(DoubleBuffer[] segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * @return number of segments the storage needs.
+     */
+    int segmentCount() {
+        long tiles = (long) tileRows * tileColumns;
+        return (int) ((tiles + tilesPerSegment - 1) / tilesPerSegment);
+    }
+
+    /**
+     * @return bytes of segment s.
+     */
+    long segmentBytes(int s) {
+        long tiles = (long) tileRows * tileColumns;
+        long first = (long) s * tilesPerSegment;
+        return Math.min(tilesPerSegment, tiles - first) * 8L * tileSize * tileSize;
+    }
+
+    /**
+     * @return bytes of the whole storage.
+     */
+    long storageBytes() {
+        return (long) tileRows * tileColumns * 8L * tileSize * tileSize;
+    }
+
+    int cachedTiles() {
+        return cache.capacity;
+    }
+
+    int tileRows() {
+        return tileRows;
+    }
+
+    int tileColumns() {
+        return tileColumns;
+    }
+
+    /**
+     * @return number of matrix rows in tile row ti.
+     */
+    int rowsIn(int ti) {
+        return Math.min(tileSize, rows - ti * tileSize);
+    }
+
+    /**
+     * @return number of matrix columns in tile column tj.
+     */
+    int columnsIn(int tj) {
+        return Math.min(tileSize, columns - tj * tileSize);
+    }
+
+    /**
+     * Heap copy of tile (ti, tj), row-major with leading dimension tileSize.
+     * The array is only valid until a few more tiles have been fetched, so
+     * fetch it again rather than holding on to it.
+     *
+     * @param write whether the caller modifies the tile
+     */
+    double[] tile(int ti, int tj, boolean write) {
+        checkOpen();
+        return cache.get(ti * tileColumns + tj, write);
+    }
+
+    /**
+     * this = A, A has the same dimensions.
+     */
+    void copyFrom(Matrix A) {
+        double[] a = A.data();
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tj = 0; tj < tileColumns; tj++) {
+                double[] t = tile(ti, tj, true);
+                int mr = rowsIn(ti), nc = columnsIn(tj);
+                for (int i = 0; i < mr; i++) {
+                    System.arraycopy(a, A.offset() + (ti * tileSize + i) * A.ld() + tj * tileSize,
+                            t, i * tileSize, nc);
+                }
+            }
+        }
+        flush();
+    }
+
+    /**
+     * X = this * other, one tile of X at a time. X starts as zeros.
+     */
+    void multInto(TiledMatrix other, TiledMatrix X) {
+        if (other.rows != columns) {
+            throw new IllegalArgumentException("Matrix inner dimensions must agree.");
+        }
+        checkTileSize(other);
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tj = 0; tj < other.tileColumns; tj++) {
+                for (int tp = 0; tp < tileColumns; tp++) {
+                    // Fetched again on every step so C stays the most recently used tile.
+                    double[] c = X.tile(ti, tj, true);
+                    Gemm.multiply(rowsIn(ti), other.columnsIn(tj), columnsIn(tp), 1.0,
+                            tile(ti, tp, false), 0, tileSize,
+                            other.tile(tp, tj, false), 0, tileSize,
+                            c, 0, tileSize);
+                }
+            }
+        }
+        X.flush();
+    }
+
+    /**
+     * X = this', tile by tile.
+     */
+    void transposeInto(TiledMatrix X) {
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tj = 0; tj < tileColumns; tj++) {
+                double[] a = tile(ti, tj, false);
+                double[] c = X.tile(tj, ti, true);
+                int mr = rowsIn(ti), nc = columnsIn(tj);
+                for (int i = 0; i < mr; i++) {
+                    int row = i * tileSize;
+                    for (int j = 0; j < nc; j++) {
+                        c[j * tileSize + i] = a[row + j];
+                    }
+                }
+            }
+        }
+        X.flush();
+    }
+
+    /**
+     * X = this + s * other, tile by tile.
+     */
+    void combineInto(TiledMatrix other, double s, TiledMatrix X) {
+        if (other.rows != rows || other.columns != columns) {
+            throw new IllegalArgumentException("Matrix dimensions must agree.");
+        }
+        checkTileSize(other);
+        int size = tileSize * tileSize;
+        for (int ti = 0; ti < tileRows; ti++) {
+            for (int tj = 0; tj < tileColumns; tj++) {
+                double[] a = tile(ti, tj, false);
+                double[] b = other.tile(ti, tj, false);
+                // Padding is zero in both operands, so whole tiles can be combined.
+                Kernels.axpy(size, s, a, 0, b, 0, X.tile(ti, tj, true), 0);
+            }
+        }
+        X.flush();
+    }
+
+    private void read(int index, double[] t) {
+        DoubleBuffer view = segments[index / tilesPerSegment].duplicate();
+        view.position((index % tilesPerSegment) * t.length);
+        view.get(t);
+    }
+
+    private void write(int index, double[] t) {
+        DoubleBuffer view = segments[index / tilesPerSegment].duplicate();
+        view.position((index % tilesPerSegment) * t.length);
+        view.put(t);
+    }
+
+    private void checkOpen() {
+        if (segments == null) {
+            throw new IllegalStateException("Matrix is closed.");
+        }
+    }
+
+    private void checkTileSize(TiledMatrix other) {
+        if (other.tileSize != tileSize) {
+            throw new IllegalArgumentException("Tile sizes must agree.");
+        }
+    }
+
+    private void checkIndex(int i, int j) {
+        if (i < 0 || i >= rows || j < 0 || j >= columns) {
+            throw new ArrayIndexOutOfBoundsException("Matrix index (" + i + ", " + j + ")");
+        }
+    }
+
+    /**
+     * LRU cache of heap tiles with write-back of the modified ones.
+     */
+    private final class TileCache extends LinkedHashMap<Integer, double[]> {
+        private static final long serialVersionUID = 1L;
+
+        final int capacity;
+        private final Set<Integer> dirty = new HashSet<Integer>();
+        private double[] spare;
+
+        TileCache(int capacity) {
+            super(2 * capacity, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        double[] get(int index, boolean write) {
+            Integer key = index;
+            double[] t = super.get(key);
+            if (t == null) {
+                t = spare != null ? spare : new double[tileSize * tileSize];
+                spare = null;
+                read(index, t);
+                put(key, t);
+            }
+            if (write) {
+                dirty.add(key);
+            }
+            return t;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            Integer key = eldest.getKey();
+            if (dirty.remove(key)) {
+                write(key, eldest.getValue());
+            }
+            spare = eldest.getValue();
+            return true;
+        }
+
+        void writeBack() {
+            for (Iterator<Integer> it = dirty.iterator(); it.hasNext(); ) {
+                Integer key = it.next();
+                write(key, super.get(key));
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cs_c_matrix_calc.matrix;
+
+import java.util.Arrays;
+
+/**
+ * Per-thread scratch buffers for the kernels and decompositions.
+ * <p/>
+ * Every temporary the library needs lives in one of a fixed set of slots,
+ * one per role, so nested kernels never hand out the same array twice. A
+ * slot grows when a larger buffer is requested and is reused afterwards;
+ * once the buffers have reached their working size, repeated
+ * {@code decompose} and {@code solve(B, X)} calls on the same shapes no
+ * longer allocate. The counters record every growth so that can be checked,
+ * e.g. by resetting them, running a loop and expecting zero.
+ * <p/>
+ * Work that {@link com.example.cs_c_matrix_calc.matrix.utils.Parallel}
+ * runs on pool threads uses the workspaces of those threads.
+ */
+public final class Workspace {
+
+    /**
+     * Slots, one per kind of temporary.
+     */
+    static final int GEMM_A = 0, GEMM_B = 1, GEMM_EDGE = 2, STRASSEN = 3,
+            PANEL = 4, V = 5, VT = 6, W = 7, RHS = 8;
+    private static final int SLOTS = 9;
+
+    private static final ThreadLocal<Workspace> LOCAL = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    private final double[][] buffers = new double[SLOTS][];
+    private long allocations, allocatedBytes;
+
+    private Workspace() {
+        for (int s = 0; s < SLOTS; s++) {
+            buffers[s] = new double[0];
+        }
+    }
+
+    /**
+     * @return the calling thread's workspace.
+     */
+    public static Workspace local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * @return number of buffers allocated since the last reset.
+     */
+    public long allocations() {
+        return allocations;
+    }
+
+    /**
+     * @return bytes allocated for buffers since the last reset.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void resetCounters() {
+        allocations = 0;
+        allocatedBytes = 0;
+    }
+
+    /**
+     * Drop all buffers, e.g. after a one-off large problem.
+     */
+    public void release() {
+        for (int s = 0; s < SLOTS; s++) {
+            buffers[s] = new double[0];
+        }
+    }
+
+    /**
+     * Buffer of slot with at least length elements, contents unspecified.
+     */
+    double[] doubles(int slot, int length) {
+        double[] b = buffers[slot];
+        if (b.length < length) {
+            // Grow by half at least, so slowly growing requests settle quickly.
+            b = new double[Math.max(length, b.length + (b.length >> 1))];
+            buffers[slot] = b;
+            allocations++;
+            allocatedBytes += 8L * b.length;
+        }
+        return b;
+    }
+
+    /**
+     * Buffer of slot with its first length elements set to zero.
+     */
+    double[] zeros(int slot, int length) {
+        double[] b = doubles(slot, length);
+        Arrays.fill(b, 0, length, 0.0);
+        return b;
+    }
+}
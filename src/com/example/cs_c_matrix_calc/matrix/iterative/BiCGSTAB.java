@@ -0,0 +1,66 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+/**
+ * Biconjugate gradient stabilized method for general nonsymmetric A, with
+ * right preconditioning. Two products with A per iteration and constant
+ * memory, but the residual does not decrease monotonically and the method
+ * can break down, in which case the result is not converged.
+ */
+public class BiCGSTAB extends IterativeSolver {
+
+    SolverResult iterate(LinearOperator A, double[] b, double[] x, double bnorm) {
+        int n = b.length;
+        double[] r = new double[n], rhat = new double[n], p = new double[n], v = new double[n];
+        double[] phat = new double[n], s = new double[n], shat = new double[n], t = new double[n];
+        residual(A, b, x, r);
+        double res = norm(r) / bnorm;
+        if (res <= tolerance()) {
+            return new SolverResult(x, 0, res, true);
+        }
+        System.arraycopy(r, 0, rhat, 0, n);
+        double rho = 1.0, alpha = 1.0, omega = 1.0;
+
+        for (int it = 1; it <= maxIterations(); it++) {
+            double rhoNew = dot(rhat, r);
+            if (rhoNew == 0.0) {
+                return new SolverResult(x, it - 1, res, false);
+            }
+            double beta = (rhoNew / rho) * (alpha / omega);
+            rho = rhoNew;
+            for (int i = 0; i < n; i++) {
+                p[i] = r[i] + beta * (p[i] - omega * v[i]);
+            }
+            precondition(p, phat);
+            A.apply(phat, v);
+            double rv = dot(rhat, v);
+            if (rv == 0.0) {
+                return new SolverResult(x, it - 1, res, false);
+            }
+            alpha = rho / rv;
+            for (int i = 0; i < n; i++) {
+                s[i] = r[i] - alpha * v[i];
+            }
+            double snorm = norm(s) / bnorm;
+            if (snorm <= tolerance()) {
+                axpy(alpha, phat, x);
+                return new SolverResult(x, it, snorm, true);
+            }
+            precondition(s, shat);
+            A.apply(shat, t);
+            double tt = dot(t, t);
+            omega = tt == 0.0 ? 0.0 : dot(t, s) / tt;
+            for (int i = 0; i < n; i++) {
+                x[i] += alpha * phat[i] + omega * shat[i];
+                r[i] = s[i] - omega * t[i];
+            }
+            res = norm(r) / bnorm;
+            if (res <= tolerance()) {
+                return new SolverResult(x, it, res, true);
+            }
+            if (omega == 0.0) {
+                return new SolverResult(x, it, res, false);
+            }
+        }
+        return new SolverResult(x, maxIterations(), res, false);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+/**
+ * Preconditioned conjugate gradient method, for symmetric positive definite
+ * A and preconditioner. One product with A per iteration.
+ */
+public class ConjugateGradient extends IterativeSolver {
+
+    SolverResult iterate(LinearOperator A, double[] b, double[] x, double bnorm) {
+        int n = b.length;
+        double[] r = new double[n], z = new double[n], p = new double[n], q = new double[n];
+        residual(A, b, x, r);
+        double res = norm(r) / bnorm;
+        if (res <= tolerance()) {
+            return new SolverResult(x, 0, res, true);
+        }
+        precondition(r, z);
+        System.arraycopy(z, 0, p, 0, n);
+        double rz = dot(r, z);
+
+        for (int it = 1; it <= maxIterations(); it++) {
+            A.apply(p, q);
+            double pq = dot(p, q);
+            if (!(pq > 0.0)) {
+                // A is not positive definite along p.
+                return new SolverResult(x, it - 1, res, false);
+            }
+            double alpha = rz / pq;
+            axpy(alpha, p, x);
+            axpy(-alpha, q, r);
+            res = norm(r) / bnorm;
+            if (res <= tolerance()) {
+                return new SolverResult(x, it, res, true);
+            }
+            precondition(r, z);
+            double rzNew = dot(r, z);
+            double beta = rzNew / rz;
+            rz = rzNew;
+            for (int i = 0; i < n; i++) {
+                p[i] = z[i] + beta * p[i];
+            }
+        }
+        return new SolverResult(x, maxIterations(), res, false);
+    }
+}
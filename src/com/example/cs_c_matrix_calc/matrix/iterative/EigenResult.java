@@ -0,0 +1,49 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+
+/**
+ * Eigenpairs found by an iterative eigensolver.
+ */
+public class EigenResult {
+
+    private final double[] values;
+    private final Matrix vectors;
+    private final int iterations;
+    private final boolean converged;
+
+    EigenResult(double[] values, Matrix vectors, int iterations, boolean converged) {
+        this.values = values;
+        this.vectors = vectors;
+        this.iterations = iterations;
+        this.converged = converged;
+    }
+
+    /**
+     * @return the eigenvalues in descending order.
+     */
+    public double[] eigenvalues() {
+        return values;
+    }
+
+    /**
+     * @return n-by-k matrix with the eigenvector of eigenvalue i in column i.
+     */
+    public Matrix eigenvectors() {
+        return vectors;
+    }
+
+    /**
+     * @return number of matrix-vector products.
+     */
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * @return true if every eigenpair reached the tolerance within the restart limit.
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+import com.example.cs_c_matrix_calc.matrix.utils.Maths;
+
+import java.util.Arrays;
+
+/**
+ * Restarted generalized minimal residual method, GMRES(m), for general A.
+ * <p/>
+ * Each cycle builds an orthonormal Krylov basis of up to m vectors by
+ * modified Gram-Schmidt and picks the x that minimizes the residual over it,
+ * so the residual never increases. Memory is (m + 1) vectors; the
+ * preconditioner is applied on the right, so the tracked residual is the
+ * one of the original system. One product with A per iteration.
+ */
+public class GMRES extends IterativeSolver {
+
+    public static final int DEFAULT_RESTART = 30;
+
+    private final int restart;
+
+    public GMRES() {
+        this(DEFAULT_RESTART);
+    }
+
+    /**
+     * @param restart number of basis vectors, m
+     */
+    public GMRES(int restart) {
+        if (restart < 1) {
+            throw new IllegalArgumentException("Restart must be positive.");
+        }
+        this.restart = restart;
+    }
+
+    public int restart() {
+        return restart;
+    }
+
+    SolverResult iterate(LinearOperator A, double[] b, double[] x, double bnorm) {
+        int n = b.length;
+        int m = Math.min(restart, n);
+        double[][] V = new double[m + 1][n];
+        double[][] H = new double[m + 1][m];
+        double[] cs = new double[m], sn = new double[m], g = new double[m + 1], y = new double[m];
+        double[] z = new double[n], u = new double[n];
+
+        int it = 0;
+        double res;
+        while (true) {
+            residual(A, b, x, V[0]);
+            double beta = norm(V[0]);
+            res = beta / bnorm;
+            if (res <= tolerance() || it >= maxIterations()) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                V[0][i] /= beta;
+            }
+            Arrays.fill(g, 0.0);
+            g[0] = beta;
+
+            int k = 0;
+            while (k < m && it < maxIterations()) {
+                it++;
+                precondition(V[k], z);
+                double[] w = V[k + 1];
+                A.apply(z, w);
+                for (int i = 0; i <= k; i++) {
+                    double h = dot(w, V[i]);
+                    H[i][k] = h;
+                    axpy(-h, V[i], w);
+                }
+                double h = norm(w);
+                H[k + 1][k] = h;
+                if (h != 0.0) {
+                    for (int i = 0; i < n; i++) {
+                        w[i] /= h;
+                    }
+                }
+                // Bring column k of H to upper triangular form with Givens rotations.
+                for (int i = 0; i < k; i++) {
+                    double t = cs[i] * H[i][k] + sn[i] * H[i + 1][k];
+                    H[i + 1][k] = -sn[i] * H[i][k] + cs[i] * H[i + 1][k];
+                    H[i][k] = t;
+                }
+                double d = Maths.hypot(H[k][k], H[k + 1][k]);
+                cs[k] = d == 0.0 ? 1.0 : H[k][k] / d;
+                sn[k] = d == 0.0 ? 0.0 : H[k + 1][k] / d;
+                H[k][k] = d;
+                H[k + 1][k] = 0.0;
+                g[k + 1] = -sn[k] * g[k];
+                g[k] = cs[k] * g[k];
+                k++;
+                res = Math.abs(g[k]) / bnorm;
+                if (res <= tolerance() || h == 0.0) {
+                    break;
+                }
+            }
+
+            // x += inverse(M) * V * y with H*y = g.
+            for (int i = k - 1; i >= 0; i--) {
+                double s = g[i];
+                for (int j = i + 1; j < k; j++) {
+                    s -= H[i][j] * y[j];
+                }
+                y[i] = H[i][i] == 0.0 ? 0.0 : s / H[i][i];
+            }
+            Arrays.fill(u, 0.0);
+            for (int j = 0; j < k; j++) {
+                axpy(y[j], V[j], u);
+            }
+            precondition(u, z);
+            axpy(1.0, z, x);
+            if (res <= tolerance()) {
+                break;
+            }
+        }
+        return new SolverResult(x, it, res, res <= tolerance());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import com.example.cs_c_matrix_calc.matrix.RealMatrix;
+import com.example.cs_c_matrix_calc.matrix.SparseMatrix;
+
+import java.util.Arrays;
+
+/**
+ * Incomplete LU factorization with zero fill-in, ILU(0).
+ * <p/>
+ * Gaussian elimination without pivoting in which every update that would
+ * create a non-zero outside the pattern of A is dropped, so L and U share
+ * the CSR arrays of A: factoring costs about one sparse product and
+ * applying it two sparse triangular solves. Dense matrices are converted
+ * to CSR first and keep only their non-zeros in the pattern.
+ */
+public class ILU0Preconditioner implements Preconditioner {
+
+    private final int n;
+    private final int[] rowPtr, colIndex, diag;
+    private final double[] lu;
+
+    /**
+     * @param A square matrix with every diagonal element in its pattern
+     * @throws IllegalArgumentException Matrix must be square, or a diagonal element is missing.
+     * @throws RuntimeException         Zero pivot in the incomplete factorization.
+     */
+    public ILU0Preconditioner(RealMatrix A) {
+        if (A.rows() != A.columns()) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        SparseMatrix S = A instanceof SparseMatrix ? (SparseMatrix) A
+                : SparseMatrix.fromDense(A instanceof Matrix ? (Matrix) A : A.toDense());
+        n = S.rows();
+        rowPtr = S.rowPtr();
+        colIndex = S.colIndex();
+        lu = Arrays.copyOf(S.values(), S.nonZeros());
+        diag = new int[n];
+
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < n; i++) {
+            int start = rowPtr[i], end = rowPtr[i + 1];
+            for (int kk = start; kk < end; kk++) {
+                position[colIndex[kk]] = kk;
+            }
+            // Eliminate the entries left of the diagonal, in column order.
+            int kk = start;
+            for (; kk < end && colIndex[kk] < i; kk++) {
+                int k = colIndex[kk];
+                double m = lu[kk] / lu[diag[k]];
+                lu[kk] = m;
+                for (int jj = diag[k] + 1; jj < rowPtr[k + 1]; jj++) {
+                    int p = position[colIndex[jj]];
+                    if (p >= 0) {
+                        lu[p] -= m * lu[jj];
+                    }
+                }
+            }
+            if (kk == end || colIndex[kk] != i) {
+                throw new IllegalArgumentException("Zero on the diagonal at " + i + ".");
+            }
+            if (lu[kk] == 0.0) {
+                throw new RuntimeException("Zero pivot in the incomplete factorization.");
+            }
+            diag[i] = kk;
+            for (int jj = start; jj < end; jj++) {
+                position[colIndex[jj]] = -1;
+            }
+        }
+    }
+
+    public void apply(double[] r, double[] z) {
+        // L*y = r, unit diagonal.
+        for (int i = 0; i < n; i++) {
+            double s = r[i];
+            for (int kk = rowPtr[i]; kk < diag[i]; kk++) {
+                s -= lu[kk] * z[colIndex[kk]];
+            }
+            z[i] = s;
+        }
+        // U*z = y
+        for (int i = n - 1; i >= 0; i--) {
+            double s = z[i];
+            for (int kk = diag[i] + 1; kk < rowPtr[i + 1]; kk++) {
+                s -= lu[kk] * z[colIndex[kk]];
+            }
+            z[i] = s / lu[diag[i]];
+        }
+    }
+}
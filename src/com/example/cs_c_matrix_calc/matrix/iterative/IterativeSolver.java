@@ -0,0 +1,152 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+import com.example.cs_c_matrix_calc.matrix.RealMatrix;
+
+/**
+ * Krylov subspace solver for A*x = b.
+ * <p/>
+ * Only products with A are needed, so a sparse matrix or a matrix-free
+ * {@link LinearOperator} takes O(non-zeros) memory and time per iteration
+ * instead of the O(n^2) memory and O(n^3) time of a direct factorization.
+ * Iteration stops once norm(b - A*x) <= tolerance * norm(b), or after the
+ * iteration limit; the {@link SolverResult} tells which.
+ */
+public abstract class IterativeSolver {
+
+    public static final double DEFAULT_TOLERANCE = 1e-10;
+    public static final int DEFAULT_MAX_ITERATIONS = 1000;
+
+    private double tolerance = DEFAULT_TOLERANCE;
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+    private Preconditioner preconditioner;
+
+    public double tolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param tolerance relative residual at which to stop
+     */
+    public void setTolerance(double tolerance) {
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("Tolerance must be positive.");
+        }
+        this.tolerance = tolerance;
+    }
+
+    public int maxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * @param maxIterations iteration limit
+     */
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("Iteration limit must be positive.");
+        }
+        this.maxIterations = maxIterations;
+    }
+
+    public Preconditioner preconditioner() {
+        return preconditioner;
+    }
+
+    /**
+     * @param preconditioner approximate inverse of A, or null for none
+     */
+    public void setPreconditioner(Preconditioner preconditioner) {
+        this.preconditioner = preconditioner;
+    }
+
+    /**
+     * Solve A*x = b starting from x = 0.
+     *
+     * @param A square matrix, dense or sparse
+     * @param b right hand side
+     * @return solution and convergence information
+     */
+    public SolverResult solve(RealMatrix A, double[] b) {
+        return solve(new MatrixOperator(A), b, null);
+    }
+
+    /**
+     * Solve A*x = b starting from x = 0.
+     *
+     * @param A linear operator
+     * @param b right hand side
+     * @return solution and convergence information
+     */
+    public SolverResult solve(LinearOperator A, double[] b) {
+        return solve(A, b, null);
+    }
+
+    /**
+     * Solve A*x = b.
+     *
+     * @param A  linear operator
+     * @param b  right hand side
+     * @param x0 initial guess, not modified, or null for zero
+     * @return solution and convergence information
+     * @throws IllegalArgumentException Vector dimensions must agree.
+     */
+    public SolverResult solve(LinearOperator A, double[] b, double[] x0) {
+        int n = A.size();
+        if (b.length != n || (x0 != null && x0.length != n)) {
+            throw new IllegalArgumentException("Vector dimensions must agree.");
+        }
+        double[] x = x0 == null ? new double[n] : x0.clone();
+        double bnorm = norm(b);
+        if (bnorm == 0.0) {
+            return new SolverResult(new double[n], 0, 0.0, true);
+        }
+        return iterate(A, b, x, bnorm);
+    }
+
+    /**
+     * Run the iteration from x, updated in place.
+     */
+    abstract SolverResult iterate(LinearOperator A, double[] b, double[] x, double bnorm);
+
+    /**
+     * z = inverse(M) * r, a copy without a preconditioner.
+     */
+    void precondition(double[] r, double[] z) {
+        if (preconditioner == null) {
+            System.arraycopy(r, 0, z, 0, r.length);
+        } else {
+            preconditioner.apply(r, z);
+        }
+    }
+
+    /**
+     * r = b - A*x
+     */
+    static void residual(LinearOperator A, double[] b, double[] x, double[] r) {
+        A.apply(x, r);
+        for (int i = 0; i < r.length; i++) {
+            r[i] = b[i] - r[i];
+        }
+    }
+
+    static double dot(double[] x, double[] y) {
+        double s = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            s += x[i] * y[i];
+        }
+        return s;
+    }
+
+    static double norm(double[] x) {
+        return Math.sqrt(dot(x, x));
+    }
+
+    /**
+     * y += alpha * x
+     */
+    static void axpy(double alpha, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) {
+            y[i] += alpha * x[i];
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+import com.example.cs_c_matrix_calc.matrix.RealMatrix;
+
+/**
+ * Diagonal preconditioner, M = diag(A).
+ */
+public class JacobiPreconditioner implements Preconditioner {
+
+    private final double[] invDiag;
+
+    /**
+     * @param A square matrix without zeros on the diagonal
+     * @throws IllegalArgumentException Matrix must be square, or a diagonal element is zero.
+     */
+    public JacobiPreconditioner(RealMatrix A) {
+        if (A.rows() != A.columns()) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        int n = A.rows();
+        invDiag = new double[n];
+        for (int i = 0; i < n; i++) {
+            double d = A.get(i, i);
+            if (d == 0.0) {
+                throw new IllegalArgumentException("Zero on the diagonal at " + i + ".");
+            }
+            invDiag[i] = 1.0 / d;
+        }
+    }
+
+    public void apply(double[] r, double[] z) {
+        for (int i = 0; i < invDiag.length; i++) {
+            z[i] = invDiag[i] * r[i];
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+import com.example.cs_c_matrix_calc.matrix.EigenvalueDecomposition;
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import com.example.cs_c_matrix_calc.matrix.RealMatrix;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The k largest eigenvalues of a symmetric matrix and their eigenvectors,
+ * by the restarted Lanczos method.
+ * <p/>
+ * Lanczos builds an orthonormal basis of the Krylov subspace of A, in which
+ * A is a small m-by-m matrix T whose extreme eigenvalues approximate those
+ * of A. When the basis is full, T is diagonalized and the basis shrinks to
+ * the best Ritz vectors plus the residual direction (thick restart, which
+ * keeps the same subspace as implicit restarting with exact shifts), so
+ * memory stays (m + 1) vectors. Only products with A are needed and the
+ * basis is reorthogonalized in full, so each restart costs O(n*m^2) plus
+ * m - k products instead of the O(n^3) of {@link EigenvalueDecomposition}.
+ */
+public class LanczosEigenSolver {
+
+    public static final double DEFAULT_TOLERANCE = 1e-10;
+    public static final int DEFAULT_MAX_RESTARTS = 300;
+
+    /**
+     * A step whose residual is this small relative to the norm of T so far
+     * has found an invariant subspace.
+     */
+    private static final double EPS = 1e-12;
+
+    private final int k;
+    private int basisSize;
+    private double tolerance = DEFAULT_TOLERANCE;
+    private int maxRestarts = DEFAULT_MAX_RESTARTS;
+
+    /**
+     * @param k number of eigenpairs
+     */
+    public LanczosEigenSolver(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of eigenpairs must be positive.");
+        }
+        this.k = k;
+    }
+
+    /**
+     * @return basis size m, 0 for the default max(2k + 1, k + 20).
+     */
+    public int basisSize() {
+        return basisSize;
+    }
+
+    /**
+     * @param basisSize basis size m, larger than k, or 0 for the default
+     */
+    public void setBasisSize(int basisSize) {
+        if (basisSize != 0 && basisSize <= k) {
+            throw new IllegalArgumentException("Basis size must be larger than k.");
+        }
+        this.basisSize = basisSize;
+    }
+
+    public double tolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param tolerance residual norm(A*y - theta*y) at which an eigenpair is
+     *                  accepted, relative to the largest Ritz value
+     */
+    public void setTolerance(double tolerance) {
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("Tolerance must be positive.");
+        }
+        this.tolerance = tolerance;
+    }
+
+    public int maxRestarts() {
+        return maxRestarts;
+    }
+
+    public void setMaxRestarts(int maxRestarts) {
+        if (maxRestarts < 0) {
+            throw new IllegalArgumentException("Restart limit must not be negative.");
+        }
+        this.maxRestarts = maxRestarts;
+    }
+
+    /**
+     * @param A symmetric matrix, dense or sparse; symmetry is not checked
+     * @return the k largest eigenpairs
+     */
+    public EigenResult solve(RealMatrix A) {
+        return solve(new MatrixOperator(A));
+    }
+
+    /**
+     * @param A symmetric linear operator; symmetry is not checked
+     * @return the k largest eigenpairs
+     * @throws IllegalArgumentException k is larger than the matrix.
+     */
+    public EigenResult solve(LinearOperator A) {
+        int n = A.size();
+        if (k > n) {
+            throw new IllegalArgumentException("More eigenpairs requested than the matrix has.");
+        }
+        int m = Math.min(n, basisSize > 0 ? basisSize : Math.max(2 * k + 1, k + 20));
+        // Basis vector j in row j; row m holds the residual direction.
+        double[] V = new double[(m + 1) * n];
+        double[] T = new double[m * m];
+        double[] x = new double[n], w = new double[n];
+        Random random = new Random(1);
+        randomVector(random, V, 0, n);
+        normalize(V, 0, n, norm(V, 0, n));
+
+        int l = 0;
+        int products = 0;
+        double scale = 0.0;
+        for (int restart = 0; ; restart++) {
+            double beta = 0.0;
+            for (int j = l; j < m; j++) {
+                System.arraycopy(V, j * n, x, 0, n);
+                A.apply(x, w);
+                products++;
+                double alpha = dot(w, 0, V, j * n, n);
+                T[j * m + j] = alpha;
+                // Full reorthogonalization, twice is enough.
+                System.arraycopy(w, 0, V, (j + 1) * n, n);
+                orthogonalize(V, j + 1, n);
+                beta = norm(V, (j + 1) * n, n);
+                scale = Math.max(scale, Math.abs(alpha) + beta);
+                if (beta <= EPS * scale) {
+                    // Invariant subspace: continue in a new direction, not coupled to the basis.
+                    beta = 0.0;
+                    if (j + 1 < m) {
+                        randomVector(random, V, (j + 1) * n, n);
+                        orthogonalize(V, j + 1, n);
+                        normalize(V, (j + 1) * n, n, norm(V, (j + 1) * n, n));
+                    }
+                } else {
+                    normalize(V, (j + 1) * n, n, beta);
+                }
+                if (j + 1 < m) {
+                    T[j * m + j + 1] = beta;
+                    T[(j + 1) * m + j] = beta;
+                }
+            }
+
+            EigenvalueDecomposition eig = new EigenvalueDecomposition(new Matrix(T, m, m));
+            double[] theta = eig.getRealEigenvalues();
+            Matrix S = eig.getV();
+            double norm = Math.max(Math.abs(theta[0]), Math.abs(theta[m - 1]));
+            boolean converged = true;
+            for (int i = m - k; i < m; i++) {
+                // The residual of a Ritz pair is beta times the last element of its eigenvector of T.
+                if (Math.abs(beta * S.get(m - 1, i)) > tolerance * norm) {
+                    converged = false;
+                    break;
+                }
+            }
+            if (converged || restart >= maxRestarts) {
+                double[] values = new double[k];
+                for (int i = 0; i < k; i++) {
+                    values[i] = theta[m - 1 - i];
+                }
+                return new EigenResult(values, ritzVectors(S, V, m, n, k).transpose(), products, converged);
+            }
+
+            // Thick restart with the p best Ritz vectors and the residual direction.
+            int p = Math.min(m - 1, k + (m - k) / 2);
+            Matrix Y = ritzVectors(S, V, m, n, p);
+            System.arraycopy(V, m * n, V, p * n, n);
+            System.arraycopy(Y.data(), 0, V, 0, p * n);
+            Arrays.fill(T, 0.0);
+            for (int i = 0; i < p; i++) {
+                double s = beta * S.get(m - 1, m - 1 - i);
+                T[i * m + i] = theta[m - 1 - i];
+                T[i * m + p] = s;
+                T[p * m + i] = s;
+            }
+            l = p;
+        }
+    }
+
+    /**
+     * Ritz vectors of the count largest Ritz values, one per row.
+     */
+    private static Matrix ritzVectors(Matrix S, double[] V, int m, int n, int count) {
+        Matrix St = new Matrix(count, m);
+        for (int r = 0; r < count; r++) {
+            for (int c = 0; c < m; c++) {
+                St.data()[r * m + c] = S.get(c, m - 1 - r);
+            }
+        }
+        return St.mult(new Matrix(V, 0, n, m, n));
+    }
+
+    /**
+     * Orthogonalize row j of V against rows 0..j-1, twice.
+     */
+    private static void orthogonalize(double[] V, int j, int n) {
+        int w = j * n;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < j; i++) {
+                double h = dot(V, w, V, i * n, n);
+                for (int t = 0; t < n; t++) {
+                    V[w + t] -= h * V[i * n + t];
+                }
+            }
+        }
+    }
+
+    private static void randomVector(Random random, double[] V, int off, int n) {
+        for (int t = 0; t < n; t++) {
+            V[off + t] = random.nextDouble() - 0.5;
+        }
+    }
+
+    private static void normalize(double[] V, int off, int n, double norm) {
+        for (int t = 0; t < n; t++) {
+            V[off + t] /= norm;
+        }
+    }
+
+    private static double norm(double[] x, int off, int n) {
+        return Math.sqrt(dot(x, off, x, off, n));
+    }
+
+    private static double dot(double[] x, int xOff, double[] y, int yOff, int n) {
+        double s = 0.0;
+        for (int t = 0; t < n; t++) {
+            s += x[xOff + t] * y[yOff + t];
+        }
+        return s;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+/**
+ * A square linear map known only through its action on vectors, so the
+ * iterative solvers never need the matrix elements.
+ */
+public interface LinearOperator {
+
+    /**
+     * @return the number of rows and columns.
+     */
+    int size();
+
+    /**
+     * y = A * x
+     *
+     * @param x vector of size() elements
+     * @param y vector of size() elements, overwritten
+     */
+    void apply(double[] x, double[] y);
+}
@@ -0,0 +1,37 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+import com.example.cs_c_matrix_calc.matrix.RealMatrix;
+
+/**
+ * A dense, sparse or tiled matrix as a {@link LinearOperator}.
+ */
+public final class MatrixOperator implements LinearOperator {
+
+    private final RealMatrix A;
+
+    /**
+     * @param A square matrix
+     * @throws IllegalArgumentException Matrix must be square.
+     */
+    public MatrixOperator(RealMatrix A) {
+        if (A.rows() != A.columns()) {
+            throw new IllegalArgumentException("Matrix must be square.");
+        }
+        this.A = A;
+    }
+
+    /**
+     * @return the wrapped matrix.
+     */
+    public RealMatrix matrix() {
+        return A;
+    }
+
+    public int size() {
+        return A.rows();
+    }
+
+    public void apply(double[] x, double[] y) {
+        A.mult(x, y);
+    }
+}
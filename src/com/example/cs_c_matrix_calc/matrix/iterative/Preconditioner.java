@@ -0,0 +1,16 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+/**
+ * Approximate inverse M of the system matrix, applied once or twice per
+ * iteration so the preconditioned system converges in fewer iterations.
+ */
+public interface Preconditioner {
+
+    /**
+     * z = inverse(M) * r
+     *
+     * @param r vector, not modified
+     * @param z vector of the same size, overwritten
+     */
+    void apply(double[] r, double[] z);
+}
@@ -0,0 +1,47 @@
+package com.example.cs_c_matrix_calc.matrix.iterative;
+
+/**
+ * Outcome of an iterative solve.
+ */
+public class SolverResult {
+
+    private final double[] x;
+    private final int iterations;
+    private final double residual;
+    private final boolean converged;
+
+    SolverResult(double[] x, int iterations, double residual, boolean converged) {
+        this.x = x;
+        this.iterations = iterations;
+        this.residual = residual;
+        this.converged = converged;
+    }
+
+    /**
+     * @return the last iterate, the solution if {@link #isConverged()}.
+     */
+    public double[] solution() {
+        return x;
+    }
+
+    /**
+     * @return number of iterations, matrix-vector products for GMRES.
+     */
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * @return norm(b - A*x) / norm(b) as tracked by the solver.
+     */
+    public double residual() {
+        return residual;
+    }
+
+    /**
+     * @return true if the residual reached the tolerance within the iteration limit.
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+}
@@ -1,5 +1,8 @@
 package com.example.cs_c_matrix_calc.matrix.utils;
 
+import com.example.cs_c_matrix_calc.matrix.Matrix;
+import com.example.cs_c_matrix_calc.matrix.MatrixExpression;
+
 /**
  * Created by cs_c on 5/15/14.
  */
@@ -21,5 +24,29 @@ public enum MatrixOperation {
         return operation;
     }
 
+    /**
+     * Lazy expression for this operation, evaluated by {@link MatrixExpression#evaluate()}.
+     *
+     * @param A first operand
+     * @param B second operand, ignored by INVERSE
+     * @return expression, or null for NONE
+     */
+    public MatrixExpression expression(Matrix A, Matrix B) {
+        MatrixExpression a = MatrixExpression.of(A);
+        switch (this) {
+            case SUM:
+                return a.plus(MatrixExpression.of(B));
+            case MINUS:
+                return a.minus(MatrixExpression.of(B));
+            case MULTIPLIED:
+                return a.mult(MatrixExpression.of(B));
+            case DIVIDED:
+                return a.mult(MatrixExpression.of(B).inverse());
+            case INVERSE:
+                return a.inverse();
+            default:
+                return null;
+        }
+    }
 
 }
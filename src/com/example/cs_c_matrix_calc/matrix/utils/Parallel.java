@@ -0,0 +1,231 @@
+package com.example.cs_c_matrix_calc.matrix.utils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared thread pool and splitting policy for the matrix kernels.
+ * <p/>
+ * Work is measured in multiply-adds (or element updates for element-wise
+ * operations). Calls below the threshold run on the calling thread, so small
+ * matrices pay no scheduling overhead.
+ */
+public final class Parallel {
+
+    /**
+     * A piece of work over the half-open index range [from, to).
+     */
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+
+    private static final ThreadLocal<Boolean> sInWorker = new ThreadLocal<Boolean>();
+
+    private static ExecutorService sExecutor;
+    private static boolean sDefaultExecutor;
+    private static volatile int sParallelism = Runtime.getRuntime().availableProcessors();
+    private static volatile long sThreshold = 1L << 18;
+
+    private Parallel() {
+    }
+
+    /**
+     * Use the given executor for parallel kernels. The default pool, if it
+     * was created, is shut down once its running chunks finish; an executor
+     * passed in here is never shut down by this class.
+     *
+     * @param executor    Executor to submit work to, or null for the default pool.
+     * @param parallelism Maximum number of chunks a range is split into.
+     */
+    public static synchronized void setExecutor(ExecutorService executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive.");
+        }
+        if (sDefaultExecutor && sExecutor != executor) {
+            sExecutor.shutdown();
+        }
+        sExecutor = executor;
+        sDefaultExecutor = false;
+        sParallelism = parallelism;
+    }
+
+    /**
+     * Get the executor used for parallel kernels, creating the default
+     * fixed pool of daemon threads on first use.
+     */
+    public static synchronized ExecutorService executor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newFixedThreadPool(sParallelism, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "matrix-worker-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            sDefaultExecutor = true;
+        }
+        return sExecutor;
+    }
+
+    /**
+     * @return maximum number of chunks a range is split into.
+     */
+    public static int parallelism() {
+        return sParallelism;
+    }
+
+    /**
+     * Set the amount of work below which kernels stay on the calling thread.
+     *
+     * @param threshold Number of multiply-adds.
+     */
+    public static void setThreshold(long threshold) {
+        sThreshold = threshold;
+    }
+
+    /**
+     * @return amount of work below which kernels stay on the calling thread.
+     */
+    public static long threshold() {
+        return sThreshold;
+    }
+
+    /**
+     * Is it worth splitting this much work across threads?
+     * Always false inside a worker, nested calls run serially.
+     *
+     * @param work Total number of multiply-adds.
+     */
+    public static boolean shouldSplit(long work) {
+        return sParallelism > 1 && work >= sThreshold && sInWorker.get() == null;
+    }
+
+    /**
+     * Run task over [from, to), split into chunks of at least grain indices
+     * when the total work is above the threshold. The first chunk runs on the
+     * calling thread, which then waits for the others. Inside every chunk,
+     * the caller's included, {@link #shouldSplit(long)} is false, so nested
+     * kernels run serially.
+     * <p/>
+     * If a chunk throws, chunks that have not started are skipped, and the
+     * first exception or error is rethrown only after every submitted chunk
+     * has finished, so no worker is still writing when the caller sees it.
+     *
+     * @param from         First index.
+     * @param to           Index after the last one.
+     * @param workPerIndex Multiply-adds done per index.
+     * @param grain        Minimum chunk length.
+     * @param task         Work to run.
+     */
+    public static void forRange(int from, int to, long workPerIndex, int grain, final RangeTask task) {
+        int length = to - from;
+        if (length <= grain || !shouldSplit(length * workPerIndex)) {
+            task.run(from, to);
+            return;
+        }
+        int chunks = Math.min(sParallelism, (length + grain - 1) / grain);
+        int chunk = (length + chunks - 1) / chunks;
+        ExecutorService executor = executor();
+        Future<?>[] futures = new Future<?>[chunks - 1];
+        final AtomicBoolean failed = new AtomicBoolean();
+        int submitted = 0;
+        int rest = to;
+        Throwable failure = null;
+        try {
+            for (int start = from + chunk; start < to; start += chunk) {
+                final int lo = start;
+                final int hi = Math.min(to, start + chunk);
+                Runnable chunkTask = new Runnable() {
+                    public void run() {
+                        if (failed.get()) {
+                            return;
+                        }
+                        sInWorker.set(Boolean.TRUE);
+                        try {
+                            task.run(lo, hi);
+                        } catch (RuntimeException e) {
+                            failed.set(true);
+                            throw e;
+                        } catch (Error e) {
+                            failed.set(true);
+                            throw e;
+                        } finally {
+                            sInWorker.remove();
+                        }
+                    }
+                };
+                try {
+                    futures[submitted] = executor.submit(chunkTask);
+                } catch (RejectedExecutionException e) {
+                    // The default pool was replaced and shut down meanwhile, see setExecutor.
+                    rest = start;
+                    break;
+                }
+                submitted++;
+            }
+            // Nested kernels stay serial here as they do in the other chunks.
+            sInWorker.set(Boolean.TRUE);
+            try {
+                task.run(from, Math.min(to, from + chunk));
+                if (rest < to) {
+                    task.run(rest, to);
+                }
+            } finally {
+                sInWorker.remove();
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        } catch (Error e) {
+            failure = e;
+        } finally {
+            if (failure != null) {
+                failed.set(true);
+            }
+            failure = join(futures, submitted, failure);
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+    }
+
+    /**
+     * Wait for the first count futures, whatever happens.
+     *
+     * @return failure, or the first failure of a future if failure is null.
+     */
+    private static Throwable join(Future<?>[] futures, int count, Throwable failure) {
+        boolean interrupted = false;
+        for (int i = 0; i < count; i++) {
+            while (true) {
+                try {
+                    futures[i].get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        Throwable cause = e.getCause();
+                        failure = cause instanceof RuntimeException || cause instanceof Error
+                                ? cause : new RuntimeException(cause);
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failure;
+    }
+}